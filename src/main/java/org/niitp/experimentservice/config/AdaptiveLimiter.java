@@ -0,0 +1,79 @@
+package org.niitp.experimentservice.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit adapted by additive increase and multiplicative decrease: the limit grows by one for every
+ * request completing within the latency target while at least half the limit is in use, and is multiplied by the
+ * backoff ratio for every request that is slower or failed. Requests over the limit are rejected, never queued.
+ */
+class AdaptiveLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile double limit;
+
+    AdaptiveLimiter(AdmissionProperties.Budget budget, double backoffRatio) {
+        this.minLimit = Math.max(1, budget.minLimit());
+        this.maxLimit = Math.max(minLimit, budget.maxLimit());
+        this.latencyNanos = budget.latency().toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(maxLimit, Math.max(minLimit, budget.initialLimit()));
+    }
+
+    /**
+     * Takes a permit, returning {@code false} without waiting when the limit is reached.
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Returns a permit and adapts the limit to the request that held it.
+     *
+     * @param nanos   time the permit was held
+     * @param dropped whether the request failed because of the server
+     */
+    void release(long nanos, boolean dropped) {
+        synchronized (this) {
+            if (dropped || nanos > latencyNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight.get() * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Returns a permit without adapting the limit, for requests whose duration says nothing about the load.
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    long rejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,174 @@
+package org.niitp.experimentservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.niitp.experimentservice.model.ErrorDetails;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Admits requests of the experiment endpoints against the {@link AdaptiveLimiter} of their {@link Budget} and
+ * rejects them with {@code 503 Service Unavailable} and {@code Retry-After} when it is exhausted, so that an
+ * overload is shed before any body is read instead of queueing on the Mongo connection pool. Cheap reads of a
+ * single experiment keep their own budget, so a burst of scans or writes does not starve them.
+ * <p>
+ * Asynchronous requests such as exports hold their permit until they complete, but do not adapt the limit since
+ * their duration depends on the size of the experiment rather than on the load. Live time point subscriptions are
+ * not limited here, they are bounded by the broadcaster.
+ * <p>
+ * The limits are exported as {@code experiment.admission.limit}, the admitted requests as
+ * {@code experiment.admission.in.flight} and the rejected ones as {@code experiment.admission.rejected}, all
+ * tagged by budget.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "experiments.admission.enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String PREFIX = "/experiments";
+
+    private final AdmissionProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<Budget, AdaptiveLimiter> limiters = new EnumMap<>(Budget.class);
+
+    public AdmissionControlFilter(AdmissionProperties properties, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        limiters.put(Budget.READ, new AdaptiveLimiter(properties.read(), properties.backoffRatio()));
+        limiters.put(Budget.SCAN, new AdaptiveLimiter(properties.scan(), properties.backoffRatio()));
+        limiters.put(Budget.WRITE, new AdaptiveLimiter(properties.write(), properties.backoffRatio()));
+        limiters.forEach((budget, limiter) -> {
+            String tag = budget.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("experiment.admission.limit", limiter, AdaptiveLimiter::limit)
+                    .description("Concurrent requests admitted by the budget")
+                    .tag("budget", tag)
+                    .register(meterRegistry);
+            Gauge.builder("experiment.admission.in.flight", limiter, AdaptiveLimiter::inFlight)
+                    .description("Admitted requests of the budget in progress")
+                    .tag("budget", tag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("experiment.admission.rejected", limiter, AdaptiveLimiter::rejected)
+                    .description("Requests rejected because the budget was exhausted")
+                    .tag("budget", tag)
+                    .register(meterRegistry);
+        });
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        Budget budget = budget(request.getMethod(), path);
+        if (budget == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        AdaptiveLimiter limiter = limiters.get(budget);
+        if (!limiter.tryAcquire()) {
+            reject(response, path);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            limiter.release(System.nanoTime() - start, true);
+            throw e;
+        }
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    limiter.release();
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            limiter.release(System.nanoTime() - start, response.getStatus() >= 500);
+        }
+    }
+
+    private void reject(HttpServletResponse response, String path) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (properties.retryAfter().toMillis() + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorDetails(new Date(), "Server is overloaded, retry later", "uri=" + path));
+    }
+
+    /**
+     * Returns the budget of a request, or {@code null} if it is not limited.
+     */
+    static Budget budget(String method, String path) {
+        if (!path.equals(PREFIX) && !path.startsWith(PREFIX + "/")) {
+            return null;
+        }
+        String[] segments = path.substring(PREFIX.length()).split("/");
+        boolean read = method.equals("GET") || method.equals("HEAD");
+        boolean write = method.equals("POST") || method.equals("PUT") || method.equals("PATCH")
+                || method.equals("DELETE");
+        if (!read && !write) {
+            return null;
+        }
+        // segments[0] is the empty string before the leading slash
+        switch (segments.length) {
+            case 0, 1:
+                // list and stream of experiments, or create
+                return read ? Budget.SCAN : Budget.WRITE;
+            case 2:
+                if (segments[1].equals("_summary") || segments[1].equals("_search")) {
+                    return read ? Budget.SCAN : null;
+                }
+                if (segments[1].equals("_bulk") || segments[1].equals("_import")) {
+                    return write ? Budget.WRITE : null;
+                }
+                return read ? Budget.READ : Budget.WRITE;
+            case 3:
+                return segments[2].equals("time_points") ? (read ? Budget.READ : Budget.WRITE) : null;
+            case 4:
+                if (!segments[2].equals("time_points") || !read) {
+                    return null;
+                }
+                return segments[3].equals("_export") || segments[3].equals("_aggregate") ? Budget.SCAN : null;
+            default:
+                return null;
+        }
+    }
+
+    enum Budget {
+        READ, SCAN, WRITE
+    }
+}
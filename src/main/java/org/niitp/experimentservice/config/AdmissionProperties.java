@@ -0,0 +1,40 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Opt-in admission control of the experiment endpoints. Requests are admitted against one of three budgets of
+ * concurrent requests, each with a limit adapted to the observed latency, and rejected with
+ * {@code 503 Service Unavailable} instead of being queued once their budget is exhausted.
+ *
+ * @param enabled      limit the concurrent requests of the experiment endpoints
+ * @param retryAfter   value of the {@code Retry-After} header of rejected requests
+ * @param backoffRatio factor applied to a limit when a request of its budget is slower than the budget latency or
+ *                     fails with a server error
+ * @param read         budget of single experiment and time point window reads
+ * @param scan         budget of listings, searches, aggregations and exports
+ * @param write        budget of creates, updates, appends, bulk writes and imports
+ */
+@ConfigurationProperties("experiments.admission")
+public record AdmissionProperties(@DefaultValue("false") boolean enabled,
+                                  @DefaultValue("1s") Duration retryAfter,
+                                  @DefaultValue("0.9") double backoffRatio,
+                                  @DefaultValue Budget read,
+                                  @DefaultValue Budget scan,
+                                  @DefaultValue Budget write) {
+
+    /**
+     * @param initialLimit concurrent requests admitted before any latency was observed
+     * @param minLimit     the limit never backs off below this
+     * @param maxLimit     the limit never grows above this
+     * @param latency      requests taking longer than this make the limit back off
+     */
+    public record Budget(@DefaultValue("20") int initialLimit,
+                         @DefaultValue("1") int minLimit,
+                         @DefaultValue("200") int maxLimit,
+                         @DefaultValue("500ms") Duration latency) {
+    }
+}
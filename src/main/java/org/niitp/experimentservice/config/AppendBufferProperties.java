@@ -0,0 +1,45 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Write-behind buffer that coalesces time point appends to the same experiment into one write.
+ *
+ * @param enabled      buffer appends instead of writing each one
+ * @param durability   when an append is acknowledged
+ * @param maxPoints    buffered points of one experiment that trigger a flush; larger appends skip the buffer,
+ *                     but are written after the points buffered before them
+ * @param maxDelay     longest time a point stays in the buffer
+ * @param capacity     buffered points of all experiments; appends wait for room up to {@code offerTimeout}
+ * @param offerTimeout how long an append waits for room in a full buffer before it is rejected, and for its write
+ *                     once its batch is due
+ * @param stripes      number of independently locked partitions of the buffer
+ * @param flushThreads number of threads writing flushed batches
+ * @param drainTimeout how long shutdown waits for the buffer to be written
+ */
+@ConfigurationProperties("experiments.append-buffer")
+public record AppendBufferProperties(@DefaultValue("false") boolean enabled,
+                                     @DefaultValue("ack-after-flush") Durability durability,
+                                     @DefaultValue("500") int maxPoints,
+                                     @DefaultValue("200ms") Duration maxDelay,
+                                     @DefaultValue("100000") int capacity,
+                                     @DefaultValue("1s") Duration offerTimeout,
+                                     @DefaultValue("64") int stripes,
+                                     @DefaultValue("4") int flushThreads,
+                                     @DefaultValue("30s") Duration drainTimeout) {
+
+    public enum Durability {
+        /**
+         * The append returns once its points are written, with the same response as without the buffer.
+         */
+        ACK_AFTER_FLUSH,
+        /**
+         * The append returns once its points are buffered. Points still buffered when the process dies are lost,
+         * and appends to missing experiments are only logged.
+         */
+        ACK_ON_BUFFER
+    }
+}
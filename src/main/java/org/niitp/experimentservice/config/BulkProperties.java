@@ -0,0 +1,13 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Bulk ingest of experiments.
+ *
+ * @param chunkSize number of experiments written to Mongo with one unordered bulk write
+ */
+@ConfigurationProperties("experiments.bulk")
+public record BulkProperties(@DefaultValue("500") int chunkSize) {
+}
@@ -0,0 +1,19 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Streamed import of experiments from JSON Lines files. Experiments are written in batches of
+ * {@code experiments.bulk.chunk-size}.
+ *
+ * @param writers       number of threads writing batches, shared by all imports
+ * @param maxInFlight   batches of one import being written or waiting for a writer; the file is read on only when
+ *                      one of them is done, which bounds the memory an import takes
+ * @param maxRejections rejected lines reported in detail, the rest are only counted
+ */
+@ConfigurationProperties("experiments.import")
+public record ImportProperties(@DefaultValue("4") int writers,
+                               @DefaultValue("4") int maxInFlight,
+                               @DefaultValue("1000") int maxRejections) {
+}
@@ -0,0 +1,22 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Live push of appended time points over Server-Sent Events.
+ *
+ * @param bufferSize     events buffered per subscriber; a subscriber that falls this far behind is disconnected
+ * @param heartbeat      interval of the comment events that keep idle connections open and reveal dead ones
+ * @param timeout        lifetime of one subscription, clients reconnect after it
+ * @param maxSubscribers open subscriptions of all experiments, further ones are rejected; also bounds the sender
+ *                       threads, one of which runs per subscriber with events to send
+ */
+@ConfigurationProperties("experiments.live")
+public record LiveTimePointProperties(@DefaultValue("256") int bufferSize,
+                                      @DefaultValue("15s") Duration heartbeat,
+                                      @DefaultValue("30m") Duration timeout,
+                                      @DefaultValue("500") int maxSubscribers) {
+}
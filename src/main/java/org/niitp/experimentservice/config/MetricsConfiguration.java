@@ -0,0 +1,20 @@
+package org.niitp.experimentservice.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables {@code @Timed} on Spring beans. Mongo command timers ({@code mongodb.driver.commands}) and connection
+ * pool gauges ({@code mongodb.driver.pool.*}) are registered by the actuator through a {@code CommandListener}
+ * and a {@code ConnectionPoolListener} on the Mongo client settings.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Cache of serialized {@code GET /experiments/{id}} responses.
+ *
+ * @param maxSize total size of the cached JSON documents, least valuable entries are evicted beyond it
+ * @param ttl     how long a response stays cached. Writes only invalidate the cache of the instance serving them,
+ *                so with several instances a response, or a 304 answered from its cached version, can be this
+ *                much out of date
+ */
+@ConfigurationProperties("experiments.response-cache")
+public record ResponseCacheProperties(@DefaultValue("64MB") DataSize maxSize,
+                                      @DefaultValue("30s") Duration ttl) {
+}
@@ -0,0 +1,37 @@
+package org.niitp.experimentservice.config;
+
+import com.mongodb.client.MongoClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the {@link SlowQueryProfiler} on the Mongo client settings, next to the command listener of the
+ * actuator metrics, and exposes it as the {@code slowqueries} actuator endpoint.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "experiments.slow-queries.enabled", havingValue = "true")
+public class SlowQueryConfiguration {
+
+    /**
+     * Explains are run on the client the profiler listens to, which is only looked up once it is created.
+     */
+    @Bean
+    public SlowQueryProfiler slowQueryProfiler(SlowQueryProperties properties,
+                                               ObjectProvider<MongoClient> mongoClient) {
+        return new SlowQueryProfiler(properties, (database, command) ->
+                mongoClient.getObject().getDatabase(database).runCommand(command));
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer slowQueryProfilerCustomizer(SlowQueryProfiler profiler) {
+        return settings -> settings.addCommandListener(profiler);
+    }
+
+    @Bean
+    public SlowQueryEndpoint slowQueryEndpoint(SlowQueryProfiler profiler) {
+        return new SlowQueryEndpoint(profiler);
+    }
+}
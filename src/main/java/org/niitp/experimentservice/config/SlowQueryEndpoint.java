@@ -0,0 +1,29 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@code /actuator/slowqueries}: the slow Mongo commands recorded by the {@link SlowQueryProfiler}, by shape and
+ * slowest in total first. A delete starts over.
+ */
+@Endpoint(id = "slowqueries")
+public class SlowQueryEndpoint {
+
+    private final SlowQueryProfiler profiler;
+
+    public SlowQueryEndpoint(SlowQueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @ReadOperation
+    public SlowQueryProfiler.Report slowQueries() {
+        return profiler.report();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        profiler.reset();
+    }
+}
@@ -0,0 +1,414 @@
+package org.niitp.experimentservice.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Records Mongo commands slower than {@code experiments.slow-queries.threshold} by shape: the command, the
+ * collection and its filter, sort or pipeline with literal values replaced by {@code "?"}, so that calls differing
+ * only in ids or dates add up. The first {@code explainsPerShape} slow occurrences of every shape are explained
+ * with {@code executionStats} verbosity in the background, which tells documents and index keys examined against
+ * documents returned and whether the winning plan scans the whole collection. Updates, deletes and
+ * {@code findAndModify} are explained as a {@code find} with their filter, which picks the same index.
+ * <p>
+ * Only the filter parts of a command are copied when it starts, never inserted documents or update payloads.
+ * {@code getMore} is not profiled, as change stream cursors wait on the server on purpose.
+ */
+@Slf4j
+public class SlowQueryProfiler implements CommandListener, DisposableBean {
+
+    private static final Set<String> QUERY_COMMANDS =
+            Set.of("find", "aggregate", "count", "distinct", "findAndModify", "update", "delete");
+    private static final Set<String> IGNORED_COMMANDS = Set.of("explain", "getMore", "killCursors", "hello",
+            "isMaster", "ismaster", "ping", "buildInfo", "endSessions", "saslStart", "saslContinue");
+    /**
+     * Parts of a command holding the values of one call, as opposed to its shape.
+     */
+    private static final Set<String> LITERAL_PARTS = Set.of("filter", "query", "pipeline");
+    private static final BsonString LITERAL = new BsonString("?");
+
+    private final long thresholdNanos;
+    private final SlowQueryProperties properties;
+    private final BiFunction<String, BsonDocument, Document> runCommand;
+    private final Map<Integer, Started> started = new ConcurrentHashMap<>();
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final ThreadPoolExecutor explainer;
+
+    /**
+     * @param runCommand runs a command on the given database
+     */
+    public SlowQueryProfiler(SlowQueryProperties properties, BiFunction<String, BsonDocument, Document> runCommand) {
+        this.thresholdNanos = properties.threshold().toNanos();
+        this.properties = properties;
+        this.runCommand = runCommand;
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100),
+                new CustomizableThreadFactory("slow-query-explain-"));
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String name = event.getCommandName();
+        if (IGNORED_COMMANDS.contains(name)) {
+            return;
+        }
+        // The command is only readable during this call
+        BsonDocument command = event.getCommand();
+        BsonValue target = command.get(name);
+        String collection = target != null && target.isString() ? target.asString().getValue() : null;
+        started.put(event.getRequestId(), new Started(event.getDatabaseName(), collection,
+                QUERY_COMMANDS.contains(name) ? queryParts(name, command) : null));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Started command = started.remove(event.getRequestId());
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        if (command != null && nanos >= thresholdNanos) {
+            record(event.getCommandName(), command, nanos, returned(event.getResponse()), false);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Started command = started.remove(event.getRequestId());
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        if (command != null && nanos >= thresholdNanos) {
+            record(event.getCommandName(), command, nanos, null, true);
+        }
+    }
+
+    public Report report() {
+        List<SlowQuery> queries = shapes.values().stream()
+                .map(Shape::snapshot)
+                .sorted(Comparator.comparingDouble(SlowQuery::totalMillis).reversed())
+                .toList();
+        return new Report(properties.threshold().toMillis(), dropped.sum(), queries);
+    }
+
+    public void reset() {
+        shapes.clear();
+        dropped.reset();
+    }
+
+    @Override
+    public void destroy() {
+        explainer.shutdownNow();
+    }
+
+    private void record(String name, Started command, long nanos, Long returned, boolean failed) {
+        String shape = shape(command.query()).toJson();
+        String key = name + " " + command.collection() + " " + shape;
+        Shape stats = shapes.get(key);
+        if (stats == null) {
+            if (shapes.size() >= properties.maxShapes()) {
+                dropped.increment();
+                return;
+            }
+            stats = shapes.computeIfAbsent(key, k -> new Shape(name, command.database(), command.collection(), shape));
+        }
+        log.debug("Slow {} on {} took {} ms: {}", name, command.collection(), nanos / 1_000_000, shape);
+        BsonDocument explain = explainCommand(name, command);
+        if (stats.record(nanos, returned, failed, explain == null || failed ? 0 : properties.explainsPerShape())) {
+            Shape explained = stats;
+            try {
+                explainer.execute(() -> explain(explained, command.database(), explain));
+            } catch (RejectedExecutionException e) {
+                stats.explainSkipped();
+            }
+        }
+    }
+
+    private void explain(Shape stats, String database, BsonDocument command) {
+        try {
+            Document result = runCommand.apply(database, new BsonDocument("explain", command)
+                    .append("verbosity", new BsonString("executionStats")));
+            stats.explained(Explain.of(result));
+        } catch (RuntimeException e) {
+            log.debug("Failed to explain {}", command, e);
+            stats.explained(Explain.failed(e.getMessage()));
+        }
+    }
+
+    /**
+     * Copies the parts of a query command that decide its plan.
+     */
+    private static BsonDocument queryParts(String name, BsonDocument command) {
+        BsonDocument parts = new BsonDocument();
+        switch (name) {
+            case "find" -> copy(command, parts, "filter", "sort", "projection", "hint");
+            case "aggregate" -> copy(command, parts, "pipeline", "hint");
+            case "count" -> copy(command, parts, "query", "hint");
+            case "distinct" -> copy(command, parts, "key", "query");
+            case "findAndModify" -> copy(command, parts, "query", "sort");
+            case "update", "delete" -> {
+                // Statements of a bulk write usually share their shape, the first one stands for all
+                BsonValue statements = command.get(name.equals("update") ? "updates" : "deletes");
+                if (statements != null && statements.isArray() && !statements.asArray().isEmpty()
+                        && statements.asArray().get(0).isDocument()) {
+                    copy(statements.asArray().get(0).asDocument(), parts, "q");
+                    if (parts.containsKey("q")) {
+                        parts.put("filter", parts.remove("q"));
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+        return parts;
+    }
+
+    private static void copy(BsonDocument from, BsonDocument to, String... keys) {
+        for (String key : keys) {
+            BsonValue value = from.get(key);
+            if (value != null) {
+                // Documents and arrays may be views of the command buffer, other values are decoded copies
+                to.put(key, value.isDocument() ? value.asDocument().clone()
+                        : value.isArray() ? value.asArray().clone() : value);
+            }
+        }
+    }
+
+    private static BsonDocument shape(BsonDocument query) {
+        BsonDocument shape = new BsonDocument();
+        if (query != null) {
+            query.forEach((key, value) -> shape.put(key, LITERAL_PARTS.contains(key) ? stripLiterals(value) : value));
+        }
+        return shape;
+    }
+
+    /**
+     * Replaces every value with {@code "?"}, keeping field names, operators and pipeline stages.
+     */
+    static BsonValue stripLiterals(BsonValue value) {
+        if (value.isDocument()) {
+            BsonDocument stripped = new BsonDocument();
+            value.asDocument().forEach((key, field) -> stripped.put(key, stripLiterals(field)));
+            return stripped;
+        }
+        if (value.isArray() && value.asArray().stream().anyMatch(BsonValue::isDocument)) {
+            BsonArray stripped = new BsonArray();
+            value.asArray().forEach(element -> stripped.add(stripLiterals(element)));
+            return stripped;
+        }
+        return LITERAL;
+    }
+
+    /**
+     * Builds a read-only command with the plan of the given one, or {@code null} if it cannot be explained.
+     */
+    private static BsonDocument explainCommand(String name, Started command) {
+        BsonDocument query = command.query();
+        if (query == null || command.collection() == null) {
+            return null;
+        }
+        BsonString collection = new BsonString(command.collection());
+        return switch (name) {
+            case "find", "findAndModify", "update", "delete" -> {
+                BsonDocument find = new BsonDocument("find", collection);
+                BsonValue filter = query.containsKey("filter") ? query.get("filter") : query.get("query");
+                if (filter != null) {
+                    find.put("filter", filter);
+                }
+                copy(query, find, "sort", "projection", "hint");
+                yield find;
+            }
+            case "aggregate" -> {
+                BsonValue pipeline = query.get("pipeline");
+                if (pipeline == null || !pipeline.isArray() || pipeline.asArray().stream().anyMatch(stage ->
+                        stage.isDocument() && stage.asDocument().containsKey("$changeStream"))) {
+                    yield null;
+                }
+                BsonDocument aggregate = new BsonDocument("aggregate", collection).append("pipeline", pipeline)
+                        .append("cursor", new BsonDocument());
+                copy(query, aggregate, "hint");
+                yield aggregate;
+            }
+            case "count", "distinct" -> {
+                BsonDocument count = new BsonDocument(name, collection);
+                query.forEach(count::put);
+                yield count;
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Documents a command returned or wrote, or {@code null} if its reply does not tell.
+     */
+    private static Long returned(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument() && cursor.asDocument().isArray("firstBatch")) {
+            return (long) cursor.asDocument().getArray("firstBatch").size();
+        }
+        if (response.isNumber("n")) {
+            return response.getNumber("n").longValue();
+        }
+        if (response.containsKey("value")) {
+            return response.get("value").isNull() ? 0L : 1L;
+        }
+        if (response.isArray("values")) {
+            return (long) response.getArray("values").size();
+        }
+        return null;
+    }
+
+    private record Started(String database, String collection, BsonDocument query) {
+    }
+
+    /**
+     * Slow commands of one shape.
+     */
+    private static final class Shape {
+
+        private final String command;
+        private final String database;
+        private final String collection;
+        private final String shape;
+        private final List<Explain> explains = new ArrayList<>();
+        private long count;
+        private long failures;
+        private long totalNanos;
+        private long maxNanos;
+        private Long lastReturned;
+        private Instant lastSeen;
+        private int explainsStarted;
+
+        private Shape(String command, String database, String collection, String shape) {
+            this.command = command;
+            this.database = database;
+            this.collection = collection;
+            this.shape = shape;
+        }
+
+        /**
+         * @param explains occurrences of the shape to explain, counting the ones already explained
+         * @return whether this occurrence should be explained
+         */
+        synchronized boolean record(long nanos, Long returned, boolean failed, int explains) {
+            count++;
+            failures += failed ? 1 : 0;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            lastReturned = returned;
+            lastSeen = Instant.now();
+            if (explainsStarted >= explains) {
+                return false;
+            }
+            explainsStarted++;
+            return true;
+        }
+
+        synchronized void explainSkipped() {
+            explainsStarted--;
+        }
+
+        synchronized void explained(Explain explain) {
+            explains.add(explain);
+        }
+
+        synchronized SlowQuery snapshot() {
+            return new SlowQuery(command, database, collection, shape, count, failures, totalNanos / 1e6,
+                    maxNanos / 1e6, totalNanos / 1e6 / count, lastReturned, lastSeen, List.copyOf(explains));
+        }
+    }
+
+    /**
+     * Slow commands of one shape.
+     *
+     * @param lastReturned documents returned or written by the last slow occurrence, if its reply tells
+     * @param explains     explains of the first slow occurrences
+     */
+    public record SlowQuery(String command, String database, String collection, String shape, long count,
+                            long failures, double totalMillis, double maxMillis, double meanMillis,
+                            Long lastReturned, Instant lastSeen, List<Explain> explains) {
+    }
+
+    /**
+     * Execution statistics of an explained slow command.
+     *
+     * @param plan           stages of the winning plan from the top down, with their index names
+     * @param collectionScan whether the winning plan reads the whole collection
+     * @param error          why the command could not be explained, in which case the rest is empty
+     */
+    public record Explain(Instant capturedAt, Long millis, Long docsExamined, Long keysExamined, Long returned,
+                          String plan, boolean collectionScan, String error) {
+
+        static Explain of(Document result) {
+            Document planner = result.get("queryPlanner", Document.class);
+            Document stats = result.get("executionStats", Document.class);
+            // Aggregations with a pipeline that starts with a query report it in their first stage
+            List<?> stages = result.get("stages", List.class);
+            if (planner == null && stages != null && !stages.isEmpty()
+                    && stages.get(0) instanceof Document first && first.get("$cursor") instanceof Document cursor) {
+                planner = cursor.get("queryPlanner", Document.class);
+                stats = cursor.get("executionStats", Document.class);
+            }
+            Document winningPlan = planner == null ? null : planner.get("winningPlan", Document.class);
+            if (winningPlan != null && winningPlan.get("queryPlan") instanceof Document queryPlan) {
+                winningPlan = queryPlan;
+            }
+            List<String> plan = new ArrayList<>();
+            if (winningPlan != null) {
+                stages(winningPlan, plan);
+            }
+            return new Explain(Instant.now(), number(stats, "executionTimeMillis"),
+                    number(stats, "totalDocsExamined"), number(stats, "totalKeysExamined"),
+                    number(stats, "nReturned"), plan.isEmpty() ? null : String.join(" <- ", plan),
+                    plan.stream().anyMatch(stage -> stage.startsWith("COLLSCAN")), null);
+        }
+
+        static Explain failed(String error) {
+            return new Explain(Instant.now(), null, null, null, null, null, false, error);
+        }
+
+        private static void stages(Document stage, List<String> plan) {
+            String indexName = stage.getString("indexName");
+            plan.add(indexName == null ? stage.getString("stage") : stage.getString("stage") + " " + indexName);
+            if (stage.get("inputStage") instanceof Document input) {
+                stages(input, plan);
+            }
+            if (stage.get("inputStages") instanceof List<?> inputs) {
+                inputs.stream()
+                        .filter(Document.class::isInstance)
+                        .forEach(input -> stages((Document) input, plan));
+            }
+        }
+
+        private static Long number(Document document, String key) {
+            return document != null && document.get(key) instanceof Number number ? number.longValue() : null;
+        }
+    }
+
+    /**
+     * @param thresholdMillis commands taking longer than this are recorded
+     * @param dropped         slow commands not recorded because {@code maxShapes} shapes were already kept
+     * @param queries         slow commands by shape, slowest in total first
+     */
+    public record Report(long thresholdMillis, long dropped, List<SlowQuery> queries) {
+    }
+}
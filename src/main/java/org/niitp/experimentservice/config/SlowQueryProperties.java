@@ -0,0 +1,21 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Opt-in profiler of slow Mongo commands, exposed as the {@code slowqueries} actuator endpoint.
+ *
+ * @param enabled          listen to every Mongo command of the application
+ * @param threshold        commands taking longer than this are recorded
+ * @param explainsPerShape slow occurrences of each command shape that are explained, the rest are only counted
+ * @param maxShapes        distinct command shapes kept; slow commands of other shapes are only counted as dropped
+ */
+@ConfigurationProperties("experiments.slow-queries")
+public record SlowQueryProperties(@DefaultValue("false") boolean enabled,
+                                  @DefaultValue("100ms") Duration threshold,
+                                  @DefaultValue("3") int explainsPerShape,
+                                  @DefaultValue("500") int maxShapes) {
+}
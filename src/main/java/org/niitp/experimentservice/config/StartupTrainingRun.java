@@ -0,0 +1,30 @@
+package org.niitp.experimentservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exits as soon as the application is ready when {@code experiments.startup.training-run} is set, so that a run
+ * of the image build can record the classes loaded at startup into a class data sharing archive with
+ * {@code -XX:ArchiveClassesAtExit}.
+ * <p>
+ * The property is read when the event arrives rather than through {@code @ConditionalOnProperty}: with Spring AOT
+ * conditions are evaluated at build time, where the training run is never enabled.
+ */
+@Slf4j
+@Component
+public class StartupTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    static final String PROPERTY = "experiments.startup.training-run";
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (event.getApplicationContext().getEnvironment().getProperty(PROPERTY, Boolean.class, false)) {
+            log.info("Training run finished in {}, exiting", event.getTimeTaken());
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Where the time points of experiments are kept.
+ *
+ * @param storage    {@code embedded} keeps them inside the experiment document, {@code bucketed} keeps them
+ *                   in fixed-size bucket documents of a separate collection. Bucketed storage still reads the
+ *                   embedded time points of experiments written before the switch, and moves them into buckets on
+ *                   their first append; switching back to embedded needs the buckets to be moved back by hand
+ * @param bucketSize maximum number of time points in one bucket document
+ */
+@ConfigurationProperties("experiments.time-points")
+public record TimePointStorageProperties(@DefaultValue("embedded") Storage storage,
+                                         @DefaultValue("1000") int bucketSize) {
+
+    public enum Storage {
+        EMBEDDED,
+        BUCKETED
+    }
+}
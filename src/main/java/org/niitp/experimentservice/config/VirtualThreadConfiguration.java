@@ -0,0 +1,41 @@
+package org.niitp.experimentservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request, and so every {@code ExperimentService} repository call, on its own virtual thread, so that
+ * the Tomcat thread pool is no longer the concurrency limit. The Mongo connection pool then is, so size
+ * {@code maxPoolSize} of the connection string accordingly.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "experiments.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Replaces the default task executor, which also runs {@code StreamingResponseBody} writes.
+     */
+    @Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean
+    public PinnedThreadMonitor pinnedThreadMonitor(VirtualThreadProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        return new PinnedThreadMonitor(properties.pinnedThreshold(), meterRegistry);
+    }
+}
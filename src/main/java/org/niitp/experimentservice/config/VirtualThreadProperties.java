@@ -0,0 +1,18 @@
+package org.niitp.experimentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Running request handling on virtual threads.
+ *
+ * @param enabled         run Tomcat request handling and MVC async work on virtual threads instead of the
+ *                        platform thread pool
+ * @param pinnedThreshold pinned virtual threads blocking longer than this are logged with their stack trace
+ */
+@ConfigurationProperties("experiments.virtual-threads")
+public record VirtualThreadProperties(@DefaultValue("false") boolean enabled,
+                                      @DefaultValue("20ms") Duration pinnedThreshold) {
+}
@@ -1,23 +1,55 @@
 package org.niitp.experimentservice.controller;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.niitp.experimentservice.config.BinaryFormatConfiguration;
+import org.niitp.experimentservice.model.BulkResult;
 import org.niitp.experimentservice.model.Experiment;
 import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ExperimentQuery;
+import org.niitp.experimentservice.model.ExperimentSummary;
+import org.niitp.experimentservice.model.ImportResult;
 import org.niitp.experimentservice.model.ResourceNotFoundException;
+import org.niitp.experimentservice.model.TimePointExportFormat;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.service.ExperimentImporter;
+import org.niitp.experimentservice.service.ExperimentJson;
 import org.niitp.experimentservice.service.ExperimentService;
+import org.niitp.experimentservice.service.TimePointBroadcaster;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @CrossOrigin(maxAge = 3600)
 @RestController
@@ -26,17 +58,102 @@ import java.util.List;
 @Tag(name = "info", description = "Предоставление информации об эксперименте")
 @RequiredArgsConstructor
 @Validated
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ExperimentController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_TIME_POINTS_PAGE_SIZE = 10000;
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    static final String JSON_LINES_VALUE = "application/jsonl";
+    private static final MediaType GZIP = MediaType.valueOf("application/gzip");
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final Set<MediaType> BINARY_MEDIA_TYPES = Set.of(MediaType.APPLICATION_CBOR,
+            MediaType.valueOf(BinaryFormatConfiguration.APPLICATION_SMILE_VALUE));
+
     private final ExperimentService experimentService;
+    private final ExperimentImporter experimentImporter;
+    private final TimePointBroadcaster timePointBroadcaster;
 
     @Operation(
             summary = "Получить данные",
-            description = "Получаем данные"
+            description = "Получаем страницу экспериментов, упорядоченных по id. Курсор следующей страницы "
+                    + "возвращается в заголовке " + NEXT_CURSOR_HEADER + ". Если страница не изменилась с "
+                    + "указанного в If-None-Match ETag, возвращается 304"
     )
     @GetMapping
-    public List<Experiment> getExperiments() {
-        return experimentService.getExperiments();
+    public ResponseEntity<List<Experiment>> getExperiments(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+            WebRequest request) {
+        // Ids and versions are enough to tell that the page is unchanged, the experiments are not loaded
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(experimentService.getExperimentsTag(after, limit))) {
+            return null;
+        }
+        List<Experiment> experiments = experimentService.getExperiments(after, limit);
+
+        // A full page means there may be more experiments after the last one
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(ExperimentService.pageTag(experiments));
+        if (experiments.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, experiments.get(experiments.size() - 1).getId());
+        }
+        return response.body(experiments);
+    }
+
+    @Operation(
+            summary = "Получить краткие данные",
+            description = "Получаем страницу экспериментов без точек времени, только с их количеством. Курсор "
+                    + "следующей страницы возвращается в заголовке " + NEXT_CURSOR_HEADER
+    )
+    @GetMapping("/_summary")
+    public ResponseEntity<List<ExperimentSummary>> getExperimentSummaries(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        List<ExperimentSummary> summaries = experimentService.getExperimentSummaries(after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (summaries.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, summaries.get(summaries.size() - 1).id());
+        }
+        return response.body(summaries);
+    }
+
+    @Operation(
+            summary = "Найти эксперименты",
+            description = "Ищем эксперименты по интервалам date_time_start и date_time_finish (нижняя граница "
+                    + "включительно, верхняя нет), префиксу имени и признаку running (нет даты окончания). Курсор "
+                    + "следующей страницы возвращается в заголовке " + NEXT_CURSOR_HEADER
+    )
+    @GetMapping("/_search")
+    public ResponseEntity<List<Experiment>> findExperiments(
+            @RequestParam(name = "start_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startFrom,
+            @RequestParam(name = "start_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startTo,
+            @RequestParam(name = "finish_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant finishFrom,
+            @RequestParam(name = "finish_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant finishTo,
+            @RequestParam(name = "name", required = false) String namePrefix,
+            @RequestParam(required = false) Boolean running,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int limit) {
+        ExperimentQuery query = new ExperimentQuery(startFrom, startTo, finishFrom, finishTo, namePrefix, running);
+        List<Experiment> experiments = experimentService.findExperiments(query, after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (experiments.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, experiments.get(experiments.size() - 1).getId());
+        }
+        return response.body(experiments);
+    }
+
+    @Operation(
+            summary = "Выгрузить данные потоком",
+            description = "Передаем все эксперименты после курсора в формате NDJSON, по одному документу на строку"
+    )
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExperiments(@RequestParam(required = false) String after) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> experimentService.streamExperiments(after, out));
     }
 
     @Operation(
@@ -46,7 +163,6 @@ public class ExperimentController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public ResponseEntity<Experiment> addExperiment(@Valid @RequestBody Experiment experiment) {
-        log.info("Add experiment: {}", experiment);
 
         // Save the experiment (you can adjust this as needed based on your service method)
         Experiment savedExperiment = experimentService.addExperiment(experiment);
@@ -58,6 +174,38 @@ public class ExperimentController {
         return ResponseEntity.created(URI.create(location)).body(savedExperiment);
     }
 
+    @Operation(
+            summary = "Добавить данные пакетом",
+            description = "Добавляем эксперименты из JSON-массива или NDJSON-потока и возвращаем результат "
+                    + "по каждому эксперименту: id или ошибку валидации"
+    )
+    @PostMapping(value = "/_bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkResult addExperiments(InputStream experiments) throws IOException {
+        return experimentService.addExperiments(experiments);
+    }
+
+    @Operation(
+            summary = "Импортировать данные",
+            description = "Импортируем эксперименты из потока JSON Lines, по одному эксперименту на строку, не "
+                    + "загружая файл в память. Поток может быть сжат gzip (Content-Encoding: gzip). Возвращаются "
+                    + "количество записанных и отклоненных строк, скорость импорта и причины отклонения первых строк"
+    )
+    @PostMapping(value = "/_import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, JSON_LINES_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ImportResult importExperiments(
+            InputStream experiments,
+            @RequestHeader(name = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+        if (contentEncoding == null || contentEncoding.equalsIgnoreCase("identity")) {
+            return experimentImporter.importExperiments(experiments);
+        }
+        if (!contentEncoding.equalsIgnoreCase("gzip")) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "Unsupported content encoding: " + contentEncoding);
+        }
+        return experimentImporter.importExperiments(new GZIPInputStream(experiments, GZIP_BUFFER_SIZE));
+    }
+
     @Operation(
             summary = "Обновить данные эксперимента",
             description = "Обновляет данные существующего эксперимента"
@@ -80,35 +228,236 @@ public class ExperimentController {
                 .orElseThrow(() -> new ResourceNotFoundException("Experiment not found for this id :: " + id));
     }
 
+    @Operation(
+            summary = "Изменить данные эксперимента",
+            description = "Применяет JSON Merge Patch к name, description, date_time_start и date_time_finish: "
+                    + "записываются только переданные поля, null удаляет поле. Если передан If-Match с версией "
+                    + "эксперимента или списком версий, а эксперимент уже изменен, возвращается 412"
+    )
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Experiment> patchExperiment(@PathVariable String id, @RequestBody ObjectNode patch,
+                                                      @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Experiment experiment;
+        try {
+            experiment = experimentService.patchExperiment(id, patch, expectedVersion(id, ifMatch))
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found"));
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Experiment has changed", e);
+        }
+        return ResponseEntity.ok().eTag(String.valueOf(experiment.getVersion())).body(experiment);
+    }
 
     @Operation(
             summary = "Получить данные",
-            description = "Получаем данные, указав id"
+            description = "Получаем данные, указав id, в JSON или, если он указан в Accept, в CBOR или Smile. В "
+                    + "бинарных форматах даты передаются числом миллисекунд с начала эпохи. ETag ответа - версия "
+                    + "эксперимента, если эксперимент не изменился с указанной в If-None-Match версии, возвращается 304"
     )
-    @GetMapping("/{id}")
-    public Experiment getExperimentById(@PathVariable String id) {
-        return experimentService.getExperimentById(id)
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            BinaryFormatConfiguration.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<?> getExperimentById(@PathVariable String id, WebRequest request) {
+        MediaType mediaType = binaryMediaType(request.getHeader(HttpHeaders.ACCEPT));
+        // The version is enough to tell that the experiment is unchanged, its time points are not loaded
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = experimentService.getExperimentVersion(id);
+            if (version.isPresent() && request.checkNotModified(etag(version.get(), mediaType))) {
+                return null;
+            }
+        }
+
+        if (mediaType == null) {
+            // The body is already serialized JSON from the response cache
+            ExperimentJson json = experimentService.getExperimentJsonById(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found"));
+            return withVersion(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON), json.version(), null)
+                    .body(json.json());
+        }
+        Experiment experiment = experimentService.getExperimentById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found"));
+        return withVersion(ResponseEntity.ok().contentType(mediaType), experiment.getVersion(), mediaType)
+                .body(experiment);
     }
 
     @Operation(
             summary = "Обновить точки времени эксперимента",
-            description = "Добавляет новые точки времени к существующему эксперименту"
+            description = "Добавляет новые точки времени к существующему эксперименту и возвращает эксперимент "
+                    + "только с добавленными точками"
     )
-    @PutMapping(value = "/{id}/time_points", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PutMapping(value = "/{id}/time_points", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, BinaryFormatConfiguration.APPLICATION_SMILE_VALUE})
     public Experiment addTimePoints(@PathVariable String id, @Valid @RequestBody List<ExperimentItem> newTimePoints) {
-        log.info("Add time points to experiment with ID: {}", id);
+        log.info("Add {} time points to experiment with ID: {}", newTimePoints.size(), id);
+        return experimentService.addTimePoints(id, newTimePoints)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found"));
+    }
 
-        Experiment experiment = experimentService.getExperimentById(id).orElseThrow(
-                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found")
-        );
+    @Operation(
+            summary = "Получить точки времени эксперимента",
+            description = "Получаем точки времени с датой в интервале [from, to), не загружая остальную историю. "
+                    + "Без курсора возвращаются последние limit точек интервала, с курсором after - точки после "
+                    + "него. Курсор для продолжения чтения, в том числе точек, добавленных позже, всегда "
+                    + "возвращается в заголовке " + NEXT_CURSOR_HEADER
+    )
+    @GetMapping("/{id}/time_points")
+    public ResponseEntity<List<ExperimentItem>> getTimePoints(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) @Min(0) Long after,
+            @RequestParam(defaultValue = "1000") @Min(1) @Max(MAX_TIME_POINTS_PAGE_SIZE) int limit) {
+        TimePointPage page = experimentService.getTimePoints(id, from, to, after, limit)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found"));
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, String.valueOf(page.next()))
+                .body(page.timePoints());
+    }
 
-        if (experiment.getTimePoints() != null) {
-            experiment.getTimePoints().addAll(newTimePoints);
-        } else {
-            experiment.setTimePoints(newTimePoints);
+    @Operation(
+            summary = "Выгрузить точки времени эксперимента",
+            description = "Передаем потоком точки времени с датой в интервале [from, to) в формате csv или ndjson "
+                    + "как файл для скачивания, не загружая эксперимент в память. С gzip файл сжимается"
+    )
+    @GetMapping("/{id}/time_points/_export")
+    public ResponseEntity<StreamingResponseBody> exportTimePoints(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        TimePointExportFormat exportFormat = TimePointExportFormat.of(format);
+        if (exportFormat == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format must be csv or ndjson");
+        }
+        if (!experimentService.experimentExists(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found");
         }
+        String filename = id + "." + exportFormat.extension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build()
+                        .toString())
+                .body(out -> {
+                    if (!gzip) {
+                        experimentService.exportTimePoints(id, from, to, exportFormat, out);
+                        return;
+                    }
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                    experimentService.exportTimePoints(id, from, to, exportFormat, compressed);
+                    compressed.finish();
+                });
+    }
 
-        return experimentService.updateExperiment(experiment);
+    @Operation(
+            summary = "Агрегировать точки времени эксперимента",
+            description = "Считаем точки времени с датой в интервале [from, to) по интервалам длины interval "
+                    + "(например PT1M или 1m) или, если она не указана, по intervals равным интервалам. Для каждого "
+                    + "непустого интервала возвращаются количество точек и даты первой и последней, с by_name - "
+                    + "отдельно для каждого имени. Без from и to берутся даты первой и последней точки"
+    )
+    @GetMapping("/{id}/time_points/_aggregate")
+    public List<TimePointInterval> aggregateTimePoints(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String interval,
+            @RequestParam(defaultValue = "200") @Min(1) @Max(ExperimentService.MAX_INTERVALS) int intervals,
+            @RequestParam(name = "by_name", defaultValue = "false") boolean byName) {
+        Duration length;
+        try {
+            length = interval == null ? null : DurationStyle.detectAndParse(interval);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid interval: " + interval);
+        }
+        return experimentService.aggregateTimePoints(id, from, to, length, intervals, byName)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found"));
+    }
+
+    @Operation(
+            summary = "Подписаться на точки времени эксперимента",
+            description = "Передаем точки времени, добавляемые к эксперименту после подписки, как Server-Sent "
+                    + "Events: каждое добавление - событие time_points с JSON-массивом точек. Пропущенные при "
+                    + "переподключении точки можно дочитать через GET /experiments/{id}/time_points"
+    )
+    @GetMapping(value = "/{id}/time_points/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeTimePoints(@PathVariable String id) {
+        if (!experimentService.experimentExists(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found");
+        }
+        return timePointBroadcaster.subscribe(id);
+    }
+
+    /**
+     * Returns the binary media type an Accept header asks for, or {@code null} for JSON. A binary format is only
+     * chosen when it is named explicitly and not ranked below JSON, so wildcards and missing headers get JSON.
+     */
+    static MediaType binaryMediaType(String accept) {
+        if (accept == null) {
+            return null;
+        }
+        MediaType best = null;
+        double bestQuality = 0;
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            boolean binary = BINARY_MEDIA_TYPES.contains(mediaType.removeQualityValue());
+            if ((binary || mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_JSON))
+                    && mediaType.getQualityValue() > bestQuality) {
+                best = binary ? mediaType.removeQualityValue() : null;
+                bestQuality = mediaType.getQualityValue();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Entity tag of an experiment version in the given format. Tags of the same version differ between formats,
+     * as a strong tag identifies one exact representation.
+     */
+    private static String etag(Long version, MediaType binaryMediaType) {
+        return binaryMediaType == null ? String.valueOf(version) : version + "-" + binaryMediaType.getSubtype();
+    }
+
+    private static ResponseEntity.BodyBuilder withVersion(ResponseEntity.BodyBuilder response, Long version,
+                                                          MediaType binaryMediaType) {
+        response.varyBy(HttpHeaders.ACCEPT);
+        // Experiments written before versioning have no entity tag
+        return version == null ? response : response.eTag(etag(version, binaryMediaType));
+    }
+
+    /**
+     * Returns the experiment version an If-Match header such as {@code "3"} or {@code "3", "4"} lets a change
+     * apply to, or {@code null} for no header or {@code *}. If-Match uses the strong comparison, so weak tags and
+     * tags of other formats match no version. Of a list, the current version is chosen if it is listed, and the
+     * change then only applies while it stays current.
+     *
+     * @throws ResponseStatusException 412 if no listed tag matches the experiment
+     */
+    private Long expectedVersion(String id, String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            if (tag.startsWith("W/")) {
+                continue;
+            }
+            if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                tag = tag.substring(1, tag.length() - 1);
+            }
+            try {
+                versions.add(Long.parseLong(tag));
+            } catch (NumberFormatException e) {
+                // Not the tag of a JSON representation, so it matches none
+            }
+        }
+        if (versions.size() == 1) {
+            return versions.get(0);
+        }
+        return (versions.isEmpty() ? Optional.<Long>empty() : experimentService.getExperimentVersion(id))
+                .filter(versions::contains)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                        "If-Match matches no version of the experiment"));
     }
 }
@@ -0,0 +1,120 @@
+package org.niitp.experimentservice.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.niitp.experimentservice.model.BulkResult;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ResourceNotFoundException;
+import org.niitp.experimentservice.service.ReactiveExperimentService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * The routes of {@link ExperimentController} on the reactive stack, active with the {@code reactive} profile.
+ * List endpoints return a {@link Flux}, so the next page starts after the id of the last experiment received.
+ */
+@CrossOrigin(maxAge = 3600)
+@RestController
+@Slf4j
+@RequestMapping("/experiments")
+@Tag(name = "info", description = "Предоставление информации об эксперименте")
+@RequiredArgsConstructor
+@Validated
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExperimentController {
+
+    private final ReactiveExperimentService experimentService;
+
+    @Operation(
+            summary = "Получить данные",
+            description = "Получаем страницу экспериментов, упорядоченных по id"
+    )
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<Experiment> getExperiments(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(ExperimentController.MAX_PAGE_SIZE) int limit) {
+        return experimentService.getExperiments(after, limit);
+    }
+
+    @Operation(
+            summary = "Выгрузить данные потоком",
+            description = "Передаем все эксперименты после курсора в формате NDJSON, по одному документу на строку"
+    )
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Experiment> streamExperiments(@RequestParam(required = false) String after) {
+        return experimentService.streamExperiments(after);
+    }
+
+    @Operation(
+            summary = "Добавить данные",
+            description = "Добавляем данные"
+    )
+    @PostMapping
+    public Mono<ResponseEntity<Experiment>> addExperiment(@Valid @RequestBody Experiment experiment) {
+        return experimentService.addExperiment(experiment)
+                .map(savedExperiment -> ResponseEntity.created(URI.create("/experiments/" + savedExperiment.getId()))
+                        .body(savedExperiment));
+    }
+
+    @Operation(
+            summary = "Добавить данные пакетом",
+            description = "Добавляем эксперименты из JSON-массива или NDJSON-потока и возвращаем результат "
+                    + "по каждому эксперименту: id или ошибку валидации"
+    )
+    @PostMapping(value = "/_bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<BulkResult> addExperiments(@RequestBody Flux<Experiment> experiments) {
+        return experimentService.addExperiments(experiments);
+    }
+
+    @Operation(
+            summary = "Обновить данные эксперимента",
+            description = "Обновляет данные существующего эксперимента"
+    )
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Experiment> updateExperiment(@PathVariable String id, @Valid @RequestBody Experiment updatedExperiment) {
+        log.info("Update experiment with ID: {}", id);
+        return experimentService.updateExperiment(id, updatedExperiment)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Experiment not found for this id :: " + id)));
+    }
+
+    @Operation(
+            summary = "Получить данные",
+            description = "Получаем данные, указав id"
+    )
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Experiment>> getExperimentById(@PathVariable String id) {
+        // With an ETag in the response entity a matching If-None-Match is answered with 304
+        return experimentService.getExperimentById(id)
+                .map(experiment -> experiment.getVersion() == null
+                        ? ResponseEntity.ok(experiment)
+                        : ResponseEntity.ok().eTag(String.valueOf(experiment.getVersion())).body(experiment))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found")));
+    }
+
+    @Operation(
+            summary = "Обновить точки времени эксперимента",
+            description = "Добавляет новые точки времени к существующему эксперименту и возвращает эксперимент "
+                    + "только с добавленными точками"
+    )
+    @PutMapping(value = "/{id}/time_points", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<Experiment> addTimePoints(@PathVariable String id, @Valid @RequestBody Flux<ExperimentItem> newTimePoints) {
+        return newTimePoints.collectList()
+                .flatMap(timePoints -> experimentService.addTimePoints(id, timePoints))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Experiment not found")));
+    }
+}
@@ -0,0 +1,64 @@
+package org.niitp.experimentservice.controller;
+
+import jakarta.validation.ConstraintViolationException;
+import org.niitp.experimentservice.model.ErrorDetails;
+import org.niitp.experimentservice.model.ResourceNotFoundException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+/**
+ * Error responses of the reactive stack, in the same shape as {@link GlobalExceptionHandler}.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGlobalExceptionHandler extends ResponseEntityExceptionHandler {
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<?> resourceNotFoundException(ResourceNotFoundException ex, ServerWebExchange exchange) {
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), ex.getMessage(), description(exchange));
+        return new ResponseEntity<>(errorDetails, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<?> constraintViolationException(ConstraintViolationException ex, ServerWebExchange exchange) {
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), "Validation Failed", ex.getMessage());
+        return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler({OptimisticLockingFailureException.class, DuplicateKeyException.class})
+    public ResponseEntity<?> conflictException(Exception ex, ServerWebExchange exchange) {
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), ex.getMessage(), description(exchange));
+        return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<?> globalExceptionHandler(Exception ex, ServerWebExchange exchange) {
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), ex.getMessage(), description(exchange));
+        return new ResponseEntity<>(errorDetails, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Override
+    protected Mono<ResponseEntity<Object>> handleWebExchangeBindException(WebExchangeBindException ex,
+                                                                          HttpHeaders headers, HttpStatusCode status,
+                                                                          ServerWebExchange exchange) {
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), "Validation Failed",
+                ex.getBindingResult().toString());
+        return Mono.just(new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST));
+    }
+
+    private static String description(ServerWebExchange exchange) {
+        return "uri=" + exchange.getRequest().getPath();
+    }
+}
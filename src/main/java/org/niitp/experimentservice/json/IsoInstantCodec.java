@@ -0,0 +1,227 @@
+package org.niitp.experimentservice.json;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneRules;
+
+/**
+ * Hand-written codec of the wire format of experiment timestamps, {@code yyyy-MM-dd'T'HH:mm:ss.SSSXXX}, e.g.
+ * {@code 2024-11-28T10:00:00.000+03:00}. It produces exactly what {@code SimpleDateFormat} produced with that
+ * pattern, but works on epoch values and char arrays and does not create formatter or calendar objects per value.
+ * Years outside {@code 1900..9999} and inputs in other ISO-8601 shapes go through {@link DateTimeFormatter}.
+ */
+public final class IsoInstantCodec {
+
+    /**
+     * Length of a formatted timestamp with a non-zero offset.
+     */
+    public static final int MAX_LENGTH = 29;
+
+    private static final DateTimeFormatter FALLBACK_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int DAYS_0000_TO_1970 = 719_468;
+
+    private IsoInstantCodec() {
+    }
+
+    /**
+     * Formats an instant in the given time zone into the buffer, which must hold at least {@link #MAX_LENGTH} chars.
+     *
+     * @return the number of chars written
+     */
+    public static int format(Instant instant, ZoneRules rules, char[] buffer) {
+        int offsetSeconds = rules.getOffset(instant).getTotalSeconds();
+        long localSecond = instant.getEpochSecond() + offsetSeconds;
+        long epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+        int secondOfDay = Math.floorMod(localSecond, SECONDS_PER_DAY);
+
+        // Civil date from days since 1970-01-01 in the proleptic Gregorian calendar, see
+        // https://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 1900 || year > 9999) {
+            String text = FALLBACK_FORMATTER.format(instant.atOffset(rules.getOffset(instant)));
+            text.getChars(0, text.length(), buffer, 0);
+            return text.length();
+        }
+
+        int y = (int) year;
+        write4(buffer, 0, y);
+        buffer[4] = '-';
+        write2(buffer, 5, month);
+        buffer[7] = '-';
+        write2(buffer, 8, day);
+        buffer[10] = 'T';
+        write2(buffer, 11, secondOfDay / 3600);
+        buffer[13] = ':';
+        write2(buffer, 14, secondOfDay / 60 % 60);
+        buffer[16] = ':';
+        write2(buffer, 17, secondOfDay % 60);
+        buffer[19] = '.';
+        int millis = instant.getNano() / 1_000_000;
+        buffer[20] = (char) ('0' + millis / 100);
+        write2(buffer, 21, millis % 100);
+        if (offsetSeconds == 0) {
+            buffer[23] = 'Z';
+            return 24;
+        }
+        // XXX prints hours and minutes of the offset only
+        int offsetMinutes = Math.abs(offsetSeconds) / 60;
+        buffer[23] = offsetSeconds < 0 ? '-' : '+';
+        write2(buffer, 24, offsetMinutes / 60);
+        buffer[26] = ':';
+        write2(buffer, 27, offsetMinutes % 60);
+        return MAX_LENGTH;
+    }
+
+    public static String format(Instant instant, ZoneRules rules) {
+        char[] buffer = new char[MAX_LENGTH];
+        return new String(buffer, 0, format(instant, rules, buffer));
+    }
+
+    /**
+     * Parses an ISO-8601 date-time with an offset, such as {@code 2024-11-28T10:00:00.000+03:00}, or
+     * {@code 2024-11-28T07:00:00Z}. The fraction of the second may have 0 to 9 digits.
+     *
+     * @throws DateTimeParseException if the text is not such a date-time
+     */
+    public static Instant parse(char[] text, int offset, int length) {
+        Instant instant = parseFast(text, offset, length);
+        return instant != null ? instant : OffsetDateTime.parse(new String(text, offset, length)).toInstant();
+    }
+
+    public static Instant parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Parses the common shape {@code yyyy-MM-ddTHH:mm:ss[.f{1,9}](Z|±HH:mm|±HHmm|±HH)}, or returns {@code null}.
+     */
+    private static Instant parseFast(char[] text, int offset, int length) {
+        int end = offset + length;
+        if (length < 20 || text[offset + 4] != '-' || text[offset + 7] != '-' || text[offset + 10] != 'T'
+                || text[offset + 13] != ':' || text[offset + 16] != ':') {
+            return null;
+        }
+        int year = digits(text, offset, 4);
+        int month = digits(text, offset + 5, 2);
+        int day = digits(text, offset + 8, 2);
+        int hour = digits(text, offset + 11, 2);
+        int minute = digits(text, offset + 14, 2);
+        int second = digits(text, offset + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        int position = offset + 19;
+        int nanos = 0;
+        if (text[position] == '.') {
+            int fractionStart = ++position;
+            while (position < end && position - fractionStart < 9 && isDigit(text[position])) {
+                nanos = nanos * 10 + text[position++] - '0';
+            }
+            int fractionDigits = position - fractionStart;
+            if (fractionDigits == 0) {
+                return null;
+            }
+            for (int i = fractionDigits; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+
+        if (position >= end) {
+            return null;
+        }
+        int offsetSeconds;
+        char sign = text[position];
+        int remaining = end - position;
+        if (sign == 'Z' && remaining == 1) {
+            offsetSeconds = 0;
+        } else if (sign == '+' || sign == '-') {
+            int offsetHours;
+            int offsetMinutes = 0;
+            if (remaining == 3) {
+                offsetHours = digits(text, position + 1, 2);
+            } else if (remaining == 5) {
+                offsetHours = digits(text, position + 1, 2);
+                offsetMinutes = digits(text, position + 3, 2);
+            } else if (remaining == 6 && text[position + 3] == ':') {
+                offsetHours = digits(text, position + 1, 2);
+                offsetMinutes = digits(text, position + 4, 2);
+            } else {
+                return null;
+            }
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return null;
+            }
+            offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (sign == '-' ? -1 : 1);
+        } else {
+            return null;
+        }
+
+        long epochSecond = epochDay(year, month, day) * SECONDS_PER_DAY
+                + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    /**
+     * Days since 1970-01-01 of a civil date, see
+     * https://howardhinnant.github.io/date_algorithms.html#days_from_civil
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Reads a fixed number of decimal digits, or returns -1 if one of the chars is not a digit.
+     */
+    private static int digits(char[] text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            if (!isDigit(text[i])) {
+                return -1;
+            }
+            value = value * 10 + text[i] - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void write2(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void write4(char[] buffer, int offset, int value) {
+        write2(buffer, offset, value / 100);
+        write2(buffer, offset + 2, value % 100);
+    }
+}
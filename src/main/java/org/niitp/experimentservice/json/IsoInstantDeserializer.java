@@ -0,0 +1,42 @@
+package org.niitp.experimentservice.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads an {@link Instant} from an ISO-8601 date-time with an offset, e.g. {@code 2024-11-28T10:00:00.000+03:00},
+ * or from epoch milliseconds, which {@link java.util.Date} fields accepted as well.
+ */
+public class IsoInstantDeserializer extends StdScalarDeserializer<Instant> {
+
+    private static final long serialVersionUID = 1L;
+
+    public IsoInstantDeserializer() {
+        super(Instant.class);
+    }
+
+    @Override
+    public Instant deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+            return Instant.ofEpochMilli(p.getLongValue());
+        }
+        if (!p.hasToken(JsonToken.VALUE_STRING)) {
+            return (Instant) ctxt.handleUnexpectedToken(Instant.class, p);
+        }
+        char[] text = p.getTextCharacters();
+        int offset = p.getTextOffset();
+        int length = p.getTextLength();
+        try {
+            return IsoInstantCodec.parse(text, offset, length);
+        } catch (DateTimeParseException e) {
+            return (Instant) ctxt.handleWeirdStringValue(Instant.class, new String(text, offset, length),
+                    "expected ISO-8601 date-time with offset, e.g. 2024-11-28T10:00:00.000+03:00");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.niitp.experimentservice.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.zone.ZoneRules;
+import java.util.TimeZone;
+
+/**
+ * Writes an {@link Instant} as {@code yyyy-MM-dd'T'HH:mm:ss.SSSXXX} in the time zone of the mapper
+ * ({@code spring.jackson.time-zone}), as {@code @JsonFormat} did for {@link java.util.Date} fields. Binary formats
+ * such as CBOR and Smile get epoch milliseconds instead, which are smaller and need no parsing.
+ */
+public class IsoInstantSerializer extends StdSerializer<Instant> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[IsoInstantCodec.MAX_LENGTH]);
+
+    public IsoInstantSerializer() {
+        super(Instant.class);
+    }
+
+    @Override
+    public void serialize(Instant value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (gen.canWriteBinaryNatively()) {
+            gen.writeNumber(value.toEpochMilli());
+            return;
+        }
+        char[] buffer = BUFFER.get();
+        int length = IsoInstantCodec.format(value, zoneRules(provider.getTimeZone()), buffer);
+        gen.writeString(buffer, 0, length);
+    }
+
+    private static ZoneRules zoneRules(TimeZone timeZone) {
+        return timeZone.toZoneId().getRules();
+    }
+}
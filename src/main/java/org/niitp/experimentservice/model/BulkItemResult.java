@@ -0,0 +1,18 @@
+package org.niitp.experimentservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one experiment of a bulk request: the id it was stored under, or the reason it was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkItemResult(int index, String id, String error) {
+
+    public static BulkItemResult inserted(int index, String id) {
+        return new BulkItemResult(index, id, null);
+    }
+
+    public static BulkItemResult rejected(int index, String error) {
+        return new BulkItemResult(index, null, error);
+    }
+}
@@ -0,0 +1,6 @@
+package org.niitp.experimentservice.model;
+
+import java.util.List;
+
+public record BulkResult(int inserted, int rejected, List<BulkItemResult> items) {
+}
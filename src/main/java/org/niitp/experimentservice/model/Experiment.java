@@ -1,27 +1,40 @@
 package org.niitp.experimentservice.model;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.niitp.experimentservice.json.IsoInstantDeserializer;
+import org.niitp.experimentservice.json.IsoInstantSerializer;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.validation.annotation.Validated;
 
-import java.util.Date;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 @JsonIgnoreProperties(ignoreUnknown = true)
+@Document("experiment")
+@CompoundIndexes({
+        @CompoundIndex(name = "start_id", def = "{'date_time_start': 1, '_id': 1}"),
+        @CompoundIndex(name = "finish_id", def = "{'dateTimeFinish': 1, '_id': 1}"),
+        @CompoundIndex(name = "name_id", def = "{'name': 1, '_id': 1}")
+})
 public class Experiment {
 
     @Id
@@ -32,13 +45,33 @@ public class Experiment {
     @Size(max = 255, message = "Description should not exceed 255 characters")
     private String description;
 //    @Pattern(regexp = "^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}[+-]\\d{2}:\\d{2})$", message = "Date time must follow the correct pattern (ISO 8601)")
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
-    private Date date_time_start = new Date();
+    @JsonSerialize(using = IsoInstantSerializer.class)
+    @JsonDeserialize(using = IsoInstantDeserializer.class)
+    private Instant date_time_start = Instant.now().truncatedTo(ChronoUnit.MILLIS);
 //    @Pattern(regexp = "^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}[+-]\\d{2}:\\d{2})$", message = "Date time must follow the correct pattern (ISO 8601)")
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    @JsonSerialize(using = IsoInstantSerializer.class)
+    @JsonDeserialize(using = IsoInstantDeserializer.class)
     @JsonProperty("date_time_finish")
-    private Date dateTimeFinish;
+    private Instant dateTimeFinish;
     @JsonProperty("time_points")
     @Valid
     private List<ExperimentItem> timePoints;
+    // Incremented by every write, clients send it back in If-Match to detect concurrent changes
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+    // Set by every save in bucketed storage, only buckets of the current generation hold the time points
+    @JsonIgnore
+    private String bucketGeneration;
+
+    public Experiment(String id, String name, String description, Instant date_time_start, Instant dateTimeFinish,
+                      List<ExperimentItem> timePoints, Long version) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.date_time_start = date_time_start;
+        this.dateTimeFinish = dateTimeFinish;
+        this.timePoints = timePoints;
+        this.version = version;
+    }
 }
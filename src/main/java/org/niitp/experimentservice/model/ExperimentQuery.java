@@ -0,0 +1,17 @@
+package org.niitp.experimentservice.model;
+
+import java.time.Instant;
+
+/**
+ * Filter of the experiment search. Every criterion is optional, the ones that are set must all match.
+ *
+ * @param startFrom  inclusive lower bound of {@code date_time_start}
+ * @param startTo    exclusive upper bound of {@code date_time_start}
+ * @param finishFrom inclusive lower bound of {@code date_time_finish}
+ * @param finishTo   exclusive upper bound of {@code date_time_finish}
+ * @param namePrefix case-sensitive prefix of {@code name}
+ * @param running    {@code true} for experiments without a finish date, {@code false} for finished ones
+ */
+public record ExperimentQuery(Instant startFrom, Instant startTo, Instant finishFrom, Instant finishTo,
+                              String namePrefix, Boolean running) {
+}
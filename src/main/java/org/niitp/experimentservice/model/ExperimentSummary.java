@@ -0,0 +1,34 @@
+package org.niitp.experimentservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.niitp.experimentservice.json.IsoInstantDeserializer;
+import org.niitp.experimentservice.json.IsoInstantSerializer;
+
+import java.time.Instant;
+
+/**
+ * Experiment metadata without its time points, for list views.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record ExperimentSummary(
+        String id,
+        String name,
+        String description,
+        @JsonSerialize(using = IsoInstantSerializer.class)
+        @JsonDeserialize(using = IsoInstantDeserializer.class)
+        @JsonProperty("date_time_start")
+        Instant dateTimeStart,
+        @JsonSerialize(using = IsoInstantSerializer.class)
+        @JsonDeserialize(using = IsoInstantDeserializer.class)
+        @JsonProperty("date_time_finish")
+        Instant dateTimeFinish,
+        @JsonProperty("time_points_count")
+        long timePointsCount) {
+
+    public ExperimentSummary withTimePointsCount(long timePointsCount) {
+        return new ExperimentSummary(id, name, description, dateTimeStart, dateTimeFinish, timePointsCount);
+    }
+}
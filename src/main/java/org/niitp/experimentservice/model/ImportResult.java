@@ -0,0 +1,23 @@
+package org.niitp.experimentservice.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a streamed import of experiments.
+ *
+ * @param lines      non-blank lines read
+ * @param inserted   experiments written
+ * @param rejected   lines that were not written
+ * @param millis     duration of the import
+ * @param perSecond  lines read per second
+ * @param rejections the first rejected lines by line number, up to {@code experiments.import.max-rejections}
+ */
+public record ImportResult(long lines, long inserted, long rejected, long millis, double perSecond,
+                           List<Rejection> rejections) {
+
+    /**
+     * A rejected line: its 1-based number in the file and the reason it was not written.
+     */
+    public record Rejection(long line, String error) {
+    }
+}
@@ -0,0 +1,39 @@
+package org.niitp.experimentservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A fixed-size chunk of the time points of one experiment, used by the bucketed time point storage. The buckets of
+ * one generation of the history are numbered by {@code seq} in insertion order; only the newest one is appended to,
+ * and it is sealed before the next one is opened.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("experimentTimePoints")
+@CompoundIndexes({
+        @CompoundIndex(name = "experiment_bucket_seq", def = "{'experimentId': 1, 'generation': 1, 'seq': 1}",
+                unique = true)
+})
+public class TimePointBucket {
+
+    @Id
+    private String id;
+    private String experimentId;
+    private String generation;
+    private int seq;
+    private boolean sealed;
+    private int count;
+    private Instant first;
+    private Instant last;
+    private List<ExperimentItem> points;
+}
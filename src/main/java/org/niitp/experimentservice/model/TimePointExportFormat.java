@@ -0,0 +1,49 @@
+package org.niitp.experimentservice.model;
+
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Format of a time point export.
+ */
+public enum TimePointExportFormat {
+
+    /**
+     * RFC 4180 CSV with a {@code name,description,date_time} header row.
+     */
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+    /**
+     * One JSON time point per line.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    TimePointExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Returns the format with the given case-insensitive name, or {@code null} if there is none.
+     */
+    public static TimePointExportFormat of(String name) {
+        for (TimePointExportFormat format : values()) {
+            if (format.extension.equals(name.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package org.niitp.experimentservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.niitp.experimentservice.json.IsoInstantDeserializer;
+import org.niitp.experimentservice.json.IsoInstantSerializer;
+
+import java.time.Instant;
+
+/**
+ * The time points of one fixed-length interval of an experiment, optionally of one name only.
+ *
+ * @param start inclusive start of the interval
+ * @param end   exclusive end of the interval
+ * @param name  name of the counted time points, when grouped by name
+ * @param count number of time points in the interval
+ * @param first date of the earliest time point in the interval
+ * @param last  date of the latest time point in the interval
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TimePointInterval(
+        @JsonSerialize(using = IsoInstantSerializer.class)
+        @JsonDeserialize(using = IsoInstantDeserializer.class)
+        Instant start,
+        @JsonSerialize(using = IsoInstantSerializer.class)
+        @JsonDeserialize(using = IsoInstantDeserializer.class)
+        Instant end,
+        String name,
+        long count,
+        @JsonSerialize(using = IsoInstantSerializer.class)
+        @JsonDeserialize(using = IsoInstantDeserializer.class)
+        Instant first,
+        @JsonSerialize(using = IsoInstantSerializer.class)
+        @JsonDeserialize(using = IsoInstantDeserializer.class)
+        Instant last) {
+}
@@ -0,0 +1,13 @@
+package org.niitp.experimentservice.model;
+
+import java.util.List;
+
+/**
+ * A window of the time points of one experiment.
+ *
+ * @param timePoints time points of the window in insertion order
+ * @param next       position right after the last returned time point among the time points matching the window,
+ *                   to continue reading with, including time points appended later
+ */
+public record TimePointPage(List<ExperimentItem> timePoints, long next) {
+}
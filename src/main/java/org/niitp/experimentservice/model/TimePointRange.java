@@ -0,0 +1,15 @@
+package org.niitp.experimentservice.model;
+
+import java.time.Instant;
+
+/**
+ * Number and date range of the time points of an experiment.
+ *
+ * @param count number of time points
+ * @param first date of the earliest time point, {@code null} without time points
+ * @param last  date of the latest time point, {@code null} without time points
+ */
+public record TimePointRange(long count, Instant first, Instant last) {
+
+    public static final TimePointRange EMPTY = new TimePointRange(0, null, null);
+}
@@ -0,0 +1,473 @@
+package org.niitp.experimentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.niitp.experimentservice.config.TimePointStorageProperties;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ExperimentSummary;
+import org.niitp.experimentservice.model.TimePointBucket;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.model.TimePointRange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Keeps time points in fixed-size {@link TimePointBucket} documents, so that the experiment document holds only
+ * metadata and never approaches the Mongo document size limit. Buckets are filled strictly in insertion order: an
+ * append goes to the end of the newest bucket while it has room, otherwise the newest bucket is sealed and the next
+ * one is opened, so points are never written behind later ones.
+ * <p>
+ * A save writes the new history into buckets of a new generation before the version-checked save of the experiment
+ * switches to it, and only then removes the previous generations. An append pushes its points into the current
+ * generation first and then increments the version only while that generation is still current, so a reader never
+ * sees a version without the points it covers. An append racing with a save either lands in the history the save
+ * read, and the save then fails with a version conflict, or finds its generation replaced, removes the buckets of
+ * the replaced generation and appends again to the new one. It is never lost and leaves no orphan buckets.
+ * <p>
+ * Experiments written with embedded storage have no bucket generation. Their embedded time points are read as
+ * they are until the first write: an append moves them into the buckets of a first generation, a save replaces
+ * them. So switching an existing database to bucketed storage needs no migration.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "experiments.time-points.storage", havingValue = "bucketed")
+public class BucketedTimePointStore implements TimePointStore {
+
+    private final ExperimentRepository experimentRepository;
+    private final MongoTemplate mongoTemplate;
+    private final TimePointStorageProperties properties;
+
+    @Override
+    public Experiment save(Experiment experiment) {
+        List<ExperimentItem> timePoints = experiment.getTimePoints();
+        if (experiment.getId() == null) {
+            experiment.setId(new ObjectId().toHexString());
+        }
+        String generation = new ObjectId().toHexString();
+        if (timePoints != null) {
+            push(experiment.getId(), generation, timePoints);
+        }
+        experiment.setTimePoints(null);
+        experiment.setBucketGeneration(generation);
+        Experiment saved;
+        try {
+            saved = experimentRepository.save(experiment);
+        } catch (RuntimeException e) {
+            mongoTemplate.remove(Query.query(where("generation").is(generation)), TimePointBucket.class);
+            throw e;
+        }
+
+        // A save replaces the whole history
+        mongoTemplate.remove(Query.query(where("experimentId").is(saved.getId()).and("generation").ne(generation)),
+                TimePointBucket.class);
+        saved.setTimePoints(timePoints);
+        return saved;
+    }
+
+    @Override
+    public Map<Integer, String> insertAll(List<Experiment> experiments) {
+        List<List<ExperimentItem>> timePoints = experiments.stream().map(Experiment::getTimePoints).toList();
+        for (Experiment experiment : experiments) {
+            if (experiment.getId() == null) {
+                experiment.setId(new ObjectId().toHexString());
+            }
+            experiment.setBucketGeneration(new ObjectId().toHexString());
+            if (experiment.getTimePoints() != null) {
+                push(experiment.getId(), experiment.getBucketGeneration(), experiment.getTimePoints());
+            }
+            experiment.setTimePoints(null);
+        }
+        Map<Integer, String> errors = experimentRepository.insertUnordered(experiments);
+        if (!errors.isEmpty()) {
+            mongoTemplate.remove(Query.query(where("generation").in(errors.keySet().stream()
+                    .map(i -> experiments.get(i).getBucketGeneration())
+                    .toList())), TimePointBucket.class);
+        }
+        for (int i = 0; i < experiments.size(); i++) {
+            experiments.get(i).setTimePoints(timePoints.get(i));
+        }
+        return errors;
+    }
+
+    @Override
+    public Optional<Experiment> append(String experimentId, List<ExperimentItem> timePoints) {
+        while (true) {
+            Experiment current = findGeneration(experimentId);
+            if (current == null) {
+                return Optional.empty();
+            }
+            if (current.getBucketGeneration() == null) {
+                moveIntoBuckets(experimentId);
+                continue;
+            }
+            Experiment experiment = append(experimentId, current.getBucketGeneration(), timePoints);
+            if (experiment != null) {
+                return Optional.of(experiment);
+            }
+        }
+    }
+
+    /**
+     * Pushes time points into the buckets of a generation, then increments the version if the generation is still
+     * the current one.
+     *
+     * @return the experiment without its stored time points, or {@code null} if the generation was replaced or the
+     * experiment removed meanwhile, in which case the buckets of the generation are removed
+     */
+    Experiment append(String experimentId, String generation, List<ExperimentItem> timePoints) {
+        push(experimentId, generation, timePoints);
+        Query query = Query.query(where("id").is(experimentId).and("bucketGeneration").is(generation));
+        query.fields().exclude("timePoints");
+        Experiment experiment = mongoTemplate.findAndModify(query, new Update().inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true), Experiment.class);
+        if (experiment == null) {
+            // Nothing reads a replaced generation, and the save that replaced it may have cleaned up already
+            mongoTemplate.remove(Query.query(where("experimentId").is(experimentId).and("generation").is(generation)),
+                    TimePointBucket.class);
+            return null;
+        }
+        experiment.setTimePoints(timePoints);
+        return experiment;
+    }
+
+    /**
+     * Moves the embedded time points of an experiment written with embedded storage into the buckets of its first
+     * generation. The points are only removed from the experiment document when it switches to that generation, so
+     * nothing is lost if another write gets there first.
+     */
+    private void moveIntoBuckets(String experimentId) {
+        Query query = Query.query(where("id").is(experimentId).and("bucketGeneration").is(null));
+        query.fields().include("timePoints");
+        Experiment experiment = mongoTemplate.findOne(query, Experiment.class);
+        if (experiment == null) {
+            return;
+        }
+        String generation = new ObjectId().toHexString();
+        if (experiment.getTimePoints() != null) {
+            push(experimentId, generation, experiment.getTimePoints());
+        }
+        if (mongoTemplate.updateFirst(Query.query(where("id").is(experimentId).and("bucketGeneration").is(null)),
+                new Update().set("bucketGeneration", generation).unset("timePoints"),
+                Experiment.class).getModifiedCount() == 0) {
+            mongoTemplate.remove(Query.query(where("generation").is(generation)), TimePointBucket.class);
+        }
+    }
+
+    /**
+     * Reads only the buckets the window needs. Bucket headers tell how many of their time points match: all of
+     * them when the bucket lies inside the window, otherwise the bucket is loaded and filtered, which happens only
+     * at the edges of the window as buckets are filled in insertion order. Appends only extend the newest bucket
+     * or open a later one, so positions stay valid while time points are only appended.
+     */
+    @Override
+    public Optional<TimePointPage> findTimePoints(String experimentId, Instant from, Instant to, Long after,
+                                                  int limit) {
+        Experiment experiment = findGeneration(experimentId);
+        if (experiment == null) {
+            return Optional.empty();
+        }
+        if (experiment.getBucketGeneration() == null) {
+            return experimentRepository.findTimePoints(experimentId, from, to, after, limit);
+        }
+        Query query = Query.query(overlapping(experimentId, experiment.getBucketGeneration(), from, to))
+                .with(Sort.by("seq"));
+        query.fields().include("count", "first", "last");
+        List<TimePointBucket> buckets = mongoTemplate.find(query, TimePointBucket.class);
+
+        Map<String, List<ExperimentItem>> matching = points(buckets.stream()
+                .filter(bucket -> !inside(bucket, from, to))
+                .map(TimePointBucket::getId)
+                .toList());
+        matching.replaceAll((id, points) -> points.stream()
+                .filter(point -> inWindow(point.getDateTime(), from, to))
+                .toList());
+        long[] counts = new long[buckets.size()];
+        long total = 0;
+        for (int i = 0; i < buckets.size(); i++) {
+            List<ExperimentItem> points = matching.get(buckets.get(i).getId());
+            counts[i] = points == null ? buckets.get(i).getCount() : points.size();
+            total += counts[i];
+        }
+
+        long start = after == null ? Math.max(0, total - limit) : after;
+        long end = Math.min(total, start + limit);
+        List<String> needed = new ArrayList<>();
+        long position = 0;
+        for (int i = 0; i < buckets.size(); i++) {
+            if (position < end && position + counts[i] > start && !matching.containsKey(buckets.get(i).getId())) {
+                needed.add(buckets.get(i).getId());
+            }
+            position += counts[i];
+        }
+        matching.putAll(points(needed));
+
+        List<ExperimentItem> timePoints = new ArrayList<>((int) Math.max(0, end - start));
+        position = 0;
+        for (int i = 0; i < buckets.size(); i++) {
+            if (position < end && position + counts[i] > start) {
+                timePoints.addAll(matching.get(buckets.get(i).getId()).subList((int) Math.max(0, start - position),
+                        (int) Math.min(counts[i], end - position)));
+            }
+            position += counts[i];
+        }
+        return Optional.of(new TimePointPage(timePoints, after == null ? total : after + timePoints.size()));
+    }
+
+    /**
+     * Unwinds the buckets in sequence order, which is the insertion order of their time points.
+     */
+    @Override
+    public Stream<ExperimentItem> streamTimePoints(String experimentId, Instant from, Instant to) {
+        Experiment experiment = findGeneration(experimentId);
+        if (experiment == null) {
+            return Stream.empty();
+        }
+        if (experiment.getBucketGeneration() == null) {
+            return experimentRepository.streamTimePoints(experimentId, from, to);
+        }
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        pipeline.add(Aggregation.match(overlapping(experimentId, experiment.getBucketGeneration(), from, to)));
+        pipeline.add(Aggregation.sort(Sort.by("seq")));
+        pipeline.addAll(TimePointAggregations.points("points", from, to));
+        return mongoTemplate.aggregateStream(Aggregation.newAggregation(TimePointBucket.class, pipeline),
+                ExperimentItem.class);
+    }
+
+    @Override
+    public TimePointRange findTimePointRange(String experimentId, Instant from, Instant to) {
+        Experiment experiment = findGeneration(experimentId);
+        if (experiment == null) {
+            return TimePointRange.EMPTY;
+        }
+        if (experiment.getBucketGeneration() == null) {
+            return experimentRepository.findTimePointRange(experimentId, from, to);
+        }
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        pipeline.add(Aggregation.match(overlapping(experimentId, experiment.getBucketGeneration(), from, to)));
+        pipeline.addAll(TimePointAggregations.range("points", from, to));
+        return TimePointAggregations.toRange(mongoTemplate.aggregate(
+                Aggregation.newAggregation(TimePointBucket.class, pipeline), Document.class).getUniqueMappedResult());
+    }
+
+    @Override
+    public List<TimePointInterval> aggregateTimePoints(String experimentId, Instant start, Instant end,
+                                                       Duration interval, boolean byName) {
+        Experiment experiment = findGeneration(experimentId);
+        if (experiment == null) {
+            return List.of();
+        }
+        if (experiment.getBucketGeneration() == null) {
+            return experimentRepository.aggregateTimePoints(experimentId, start, end, interval, byName);
+        }
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        pipeline.add(Aggregation.match(overlapping(experimentId, experiment.getBucketGeneration(), start, end)));
+        pipeline.addAll(TimePointAggregations.intervals("points", start, end, interval, byName));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(TimePointBucket.class, pipeline), Document.class)
+                .getMappedResults().stream()
+                .map(group -> TimePointAggregations.toInterval(group, start, interval))
+                .toList();
+    }
+
+    @Override
+    public Experiment withTimePoints(Experiment experiment) {
+        if (experiment.getBucketGeneration() == null) {
+            // Written with embedded storage, the time points were loaded with the experiment
+            return experiment;
+        }
+        Query query = Query.query(where("experimentId").is(experiment.getId())
+                .and("generation").is(experiment.getBucketGeneration())).with(Sort.by("seq"));
+        query.fields().include("points");
+        List<ExperimentItem> timePoints = new ArrayList<>();
+        for (TimePointBucket bucket : mongoTemplate.find(query, TimePointBucket.class)) {
+            timePoints.addAll(bucket.getPoints());
+        }
+        experiment.setTimePoints(timePoints);
+        return experiment;
+    }
+
+    @Override
+    public List<Experiment> withTimePoints(List<Experiment> experiments) {
+        if (experiments.isEmpty()) {
+            return experiments;
+        }
+        Query query = Query.query(where("experimentId").in(experiments.stream().map(Experiment::getId).toList()))
+                .with(Sort.by("experimentId", "seq"));
+        query.fields().include("experimentId", "generation", "points");
+        Map<String, String> generations = new HashMap<>();
+        experiments.forEach(experiment -> generations.put(experiment.getId(), experiment.getBucketGeneration()));
+        Map<String, List<ExperimentItem>> timePoints = new HashMap<>();
+        for (TimePointBucket bucket : mongoTemplate.find(query, TimePointBucket.class)) {
+            if (Objects.equals(bucket.getGeneration(), generations.get(bucket.getExperimentId()))) {
+                timePoints.computeIfAbsent(bucket.getExperimentId(), id -> new ArrayList<>())
+                        .addAll(bucket.getPoints());
+            }
+        }
+        experiments.stream()
+                .filter(experiment -> experiment.getBucketGeneration() != null)
+                .forEach(experiment -> experiment.setTimePoints(timePoints.get(experiment.getId())));
+        return experiments;
+    }
+
+    @Override
+    public List<ExperimentSummary> withTimePointCounts(List<ExperimentSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return summaries;
+        }
+        List<String> ids = summaries.stream().map(ExperimentSummary::id).toList();
+        Query generationQuery = Query.query(where("id").in(ids));
+        generationQuery.fields().include("bucketGeneration");
+        Map<String, String> generations = new HashMap<>();
+        mongoTemplate.find(generationQuery, Experiment.class)
+                .forEach(experiment -> generations.put(experiment.getId(), experiment.getBucketGeneration()));
+        Map<String, Long> counts = new HashMap<>();
+        mongoTemplate.aggregate(Aggregation.newAggregation(TimePointBucket.class,
+                        Aggregation.match(where("experimentId").in(ids)),
+                        Aggregation.group("experimentId", "generation").sum("count").as("count")), Document.class)
+                .forEach(group -> {
+                    Document key = group.get("_id", Document.class);
+                    if (Objects.equals(key.getString("generation"), generations.get(key.getString("experimentId")))) {
+                        counts.put(key.getString("experimentId"), ((Number) group.get("count")).longValue());
+                    }
+                });
+        // Experiments written with embedded storage keep the count of their embedded time points
+        return summaries.stream()
+                .map(summary -> generations.get(summary.id()) == null ? summary
+                        : summary.withTimePointsCount(counts.getOrDefault(summary.id(), 0L)))
+                .toList();
+    }
+
+    /**
+     * Loads the time points of the given buckets, by bucket id.
+     */
+    private Map<String, List<ExperimentItem>> points(List<String> bucketIds) {
+        Map<String, List<ExperimentItem>> points = new HashMap<>();
+        if (bucketIds.isEmpty()) {
+            return points;
+        }
+        Query query = Query.query(where("id").in(bucketIds));
+        query.fields().include("points");
+        for (TimePointBucket bucket : mongoTemplate.find(query, TimePointBucket.class)) {
+            points.put(bucket.getId(), bucket.getPoints());
+        }
+        return points;
+    }
+
+    /**
+     * Returns the experiment with only its bucket generation, or {@code null} if there is no such experiment.
+     */
+    private Experiment findGeneration(String experimentId) {
+        Query query = Query.query(where("id").is(experimentId));
+        query.fields().include("bucketGeneration");
+        return mongoTemplate.findOne(query, Experiment.class);
+    }
+
+    /**
+     * Selects the buckets of an experiment that may hold time points dated within {@code [from, to)}.
+     */
+    private static Criteria overlapping(String experimentId, String generation, Instant from, Instant to) {
+        Criteria criteria = where("experimentId").is(experimentId).and("generation").is(generation);
+        if (from != null) {
+            criteria.and("last").gte(from);
+        }
+        if (to != null) {
+            criteria.and("first").lt(to);
+        }
+        return criteria;
+    }
+
+    private static boolean inside(TimePointBucket bucket, Instant from, Instant to) {
+        return (from == null || (bucket.getFirst() != null && !bucket.getFirst().isBefore(from)))
+                && (to == null || (bucket.getLast() != null && bucket.getLast().isBefore(to)));
+    }
+
+    private static boolean inWindow(Instant dateTime, Instant from, Instant to) {
+        if (from == null && to == null) {
+            return true;
+        }
+        return dateTime != null && (from == null || !dateTime.isBefore(from)) && (to == null || dateTime.isBefore(to));
+    }
+
+    private void push(String experimentId, String generation, List<ExperimentItem> timePoints) {
+        int bucketSize = properties.bucketSize();
+        for (int from = 0; from < timePoints.size(); from += bucketSize) {
+            pushChunk(experimentId, generation,
+                    timePoints.subList(from, Math.min(from + bucketSize, timePoints.size())));
+        }
+    }
+
+    /**
+     * Appends a chunk of at most one bucket to the end of the newest bucket if it has room, or opens the next
+     * bucket with it. The newest bucket is sealed before the next one is opened, and an append only succeeds on an
+     * unsealed bucket, so no point is written behind the points of a later bucket. Concurrent appends that lose a
+     * race retry against the new newest bucket.
+     */
+    private void pushChunk(String experimentId, String generation, List<ExperimentItem> chunk) {
+        int bucketSize = properties.bucketSize();
+        Instant first = chunk.stream().map(ExperimentItem::getDateTime).filter(Objects::nonNull)
+                .min(Comparator.naturalOrder()).orElse(null);
+        Instant last = chunk.stream().map(ExperimentItem::getDateTime).filter(Objects::nonNull)
+                .max(Comparator.naturalOrder()).orElse(null);
+        while (true) {
+            Query newestQuery = Query.query(where("experimentId").is(experimentId).and("generation").is(generation))
+                    .with(Sort.by(Sort.Direction.DESC, "seq"))
+                    .limit(1);
+            newestQuery.fields().include("seq", "count", "sealed");
+            TimePointBucket newest = mongoTemplate.findOne(newestQuery, TimePointBucket.class);
+
+            if (newest != null && !newest.isSealed() && newest.getCount() + chunk.size() <= bucketSize) {
+                Query query = Query.query(where("id").is(newest.getId())
+                        .and("sealed").ne(true)
+                        .and("count").lte(bucketSize - chunk.size()));
+                Update update = new Update()
+                        .push("points").each(chunk.toArray())
+                        .inc("count", chunk.size());
+                if (first != null) {
+                    update.min("first", first).max("last", last);
+                }
+                if (mongoTemplate.updateFirst(query, update, TimePointBucket.class).getModifiedCount() > 0) {
+                    return;
+                }
+                // Filled or sealed by a concurrent append
+                continue;
+            }
+
+            if (newest != null && !newest.isSealed()) {
+                mongoTemplate.updateFirst(Query.query(where("id").is(newest.getId())), Update.update("sealed", true),
+                        TimePointBucket.class);
+            }
+            TimePointBucket bucket = new TimePointBucket(null, experimentId, generation,
+                    newest == null ? 0 : newest.getSeq() + 1, false, chunk.size(), first, last, new ArrayList<>(chunk));
+            try {
+                mongoTemplate.insert(bucket);
+                return;
+            } catch (DuplicateKeyException e) {
+                // A concurrent append opened the next bucket first
+            }
+        }
+    }
+}
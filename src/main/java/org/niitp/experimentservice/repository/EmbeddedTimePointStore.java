@@ -0,0 +1,81 @@
+package org.niitp.experimentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ExperimentSummary;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.model.TimePointRange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keeps time points embedded in the experiment document.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "experiments.time-points.storage", havingValue = "embedded", matchIfMissing = true)
+public class EmbeddedTimePointStore implements TimePointStore {
+
+    private final ExperimentRepository experimentRepository;
+
+    @Override
+    public Experiment save(Experiment experiment) {
+        return experimentRepository.save(experiment);
+    }
+
+    @Override
+    public Map<Integer, String> insertAll(List<Experiment> experiments) {
+        return experimentRepository.insertUnordered(experiments);
+    }
+
+    @Override
+    public Optional<Experiment> append(String experimentId, List<ExperimentItem> timePoints) {
+        return experimentRepository.pushTimePoints(experimentId, timePoints);
+    }
+
+    @Override
+    public Optional<TimePointPage> findTimePoints(String experimentId, Instant from, Instant to, Long after,
+                                                  int limit) {
+        return experimentRepository.findTimePoints(experimentId, from, to, after, limit);
+    }
+
+    @Override
+    public Stream<ExperimentItem> streamTimePoints(String experimentId, Instant from, Instant to) {
+        return experimentRepository.streamTimePoints(experimentId, from, to);
+    }
+
+    @Override
+    public TimePointRange findTimePointRange(String experimentId, Instant from, Instant to) {
+        return experimentRepository.findTimePointRange(experimentId, from, to);
+    }
+
+    @Override
+    public List<TimePointInterval> aggregateTimePoints(String experimentId, Instant start, Instant end,
+                                                       Duration interval, boolean byName) {
+        return experimentRepository.aggregateTimePoints(experimentId, start, end, interval, byName);
+    }
+
+    @Override
+    public Experiment withTimePoints(Experiment experiment) {
+        return experiment;
+    }
+
+    @Override
+    public List<Experiment> withTimePoints(List<Experiment> experiments) {
+        return experiments;
+    }
+
+    @Override
+    public List<ExperimentSummary> withTimePointCounts(List<ExperimentSummary> summaries) {
+        return summaries;
+    }
+}
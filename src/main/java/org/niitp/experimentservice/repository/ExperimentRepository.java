@@ -1,10 +1,31 @@
 package org.niitp.experimentservice.repository;
 
+import org.bson.types.ObjectId;
 import org.niitp.experimentservice.model.Experiment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
-public interface ExperimentRepository extends MongoRepository<Experiment, String> {
+public interface ExperimentRepository extends MongoRepository<Experiment, String>, ExperimentRepositoryCustom {
+
+    /**
+     * Converts an experiment id used as a pagination cursor to the type it is stored as. Range operators such as
+     * {@code $gt} on {@code _id} are not converted by the query mapper, and Mongo never compares an
+     * {@code ObjectId} with a string.
+     */
+    static Object toCursor(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    List<Experiment> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Experiment> findByIdGreaterThanOrderByIdAsc(Object after, Pageable pageable);
+
+    Stream<Experiment> streamAllByOrderByIdAsc();
 
+    Stream<Experiment> streamByIdGreaterThanOrderByIdAsc(Object after);
 }
@@ -0,0 +1,107 @@
+package org.niitp.experimentservice.repository;
+
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ExperimentQuery;
+import org.niitp.experimentservice.model.ExperimentSummary;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.model.TimePointRange;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Targeted updates of experiment documents that should not go through a full read-modify-save cycle.
+ */
+public interface ExperimentRepositoryCustom {
+
+    /**
+     * Atomically appends time points to an experiment with a single {@code $push}/{@code $each} update.
+     *
+     * @return the experiment metadata with only the appended time points, or empty if there is no such experiment
+     */
+    Optional<Experiment> pushTimePoints(String id, List<ExperimentItem> timePoints);
+
+    /**
+     * Returns a window of the embedded time points of an experiment, filtered and sliced by an aggregation so that
+     * only the window leaves the database. See {@link TimePointStore#findTimePoints}.
+     */
+    Optional<TimePointPage> findTimePoints(String id, Instant from, Instant to, Long after, int limit);
+
+    /**
+     * Streams the embedded time points of an experiment, see {@link TimePointStore#streamTimePoints}.
+     */
+    Stream<ExperimentItem> streamTimePoints(String id, Instant from, Instant to);
+
+    /**
+     * Computes the range of the embedded time points of an experiment, see {@link TimePointStore#findTimePointRange}.
+     */
+    TimePointRange findTimePointRange(String id, Instant from, Instant to);
+
+    /**
+     * Groups the embedded time points of an experiment by interval, see {@link TimePointStore#aggregateTimePoints}.
+     */
+    List<TimePointInterval> aggregateTimePoints(String id, Instant start, Instant end, Duration interval,
+                                                boolean byName);
+
+    /**
+     * Sets the given fields of an experiment with a single targeted update and increments its version. A
+     * {@code null} value removes the field.
+     *
+     * @param changes         new values by property name
+     * @param expectedVersion version the changes are based on, or {@code null} to update any version
+     * @return the updated experiment without its time points, or empty if there is no such experiment
+     * @throws OptimisticLockingFailureException if the experiment exists with another version
+     */
+    Optional<Experiment> patch(String id, Map<String, Object> changes, Long expectedVersion);
+
+    /**
+     * Sets the initial version of an experiment written before versioning was introduced, so that it can be saved
+     * with optimistic locking. Does nothing if the experiment already has a version.
+     */
+    void initializeVersion(String id);
+
+    /**
+     * Returns the version of an experiment, reading only that field.
+     *
+     * @return the version, or empty if there is no such experiment or it was written before versioning
+     */
+    Optional<Long> findVersion(String id);
+
+    /**
+     * Returns one page of experiments ordered by id, like {@code findByIdGreaterThanOrderByIdAsc}, with only their
+     * ids and versions read.
+     *
+     * @param after id of the last experiment of the previous page, or {@code null} for the first page
+     */
+    List<Experiment> findVersions(String after, int limit);
+
+    /**
+     * Inserts experiments with one unordered bulk write, so that a failing document does not stop the others.
+     *
+     * @return error messages of the experiments that were not inserted, by their index in the given list
+     */
+    Map<Integer, String> insertUnordered(List<Experiment> experiments);
+
+    /**
+     * Returns one page of experiment summaries ordered by id. The time points never leave the database: only
+     * their number is computed by the aggregation.
+     *
+     * @param after id of the last experiment of the previous page, or {@code null} for the first page
+     */
+    List<ExperimentSummary> findSummaries(String after, int limit);
+
+    /**
+     * Returns one page of the experiments matching the query, ordered by id. Every supported criterion is backed
+     * by one of the indexes declared on {@link Experiment}.
+     *
+     * @param after id of the last experiment of the previous page, or {@code null} for the first page
+     */
+    List<Experiment> search(ExperimentQuery query, String after, int limit);
+}
@@ -0,0 +1,257 @@
+package org.niitp.experimentservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ExperimentQuery;
+import org.niitp.experimentservice.model.ExperimentSummary;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.model.TimePointRange;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+class ExperimentRepositoryCustomImpl implements ExperimentRepositoryCustom {
+
+    private static final Pattern REGEX_METACHARACTERS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Experiment> pushTimePoints(String id, List<ExperimentItem> timePoints) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        // The returned document is the state right after our own update, so its last
+        // timePoints.size() points are exactly the ones pushed here
+        query.fields().slice("timePoints", -timePoints.size());
+        Update update = new Update().push("timePoints").each(timePoints.toArray()).inc("version", 1);
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Experiment.class));
+    }
+
+    @Override
+    public Optional<TimePointPage> findTimePoints(String id, Instant from, Instant to, Long after, int limit) {
+        AggregationExpression timePoints = ConditionalOperators.ifNull("timePoints").then(List.of());
+        if (from != null || to != null) {
+            List<Document> bounds = new ArrayList<>();
+            if (from != null) {
+                bounds.add(new Document("$gte", List.of("$$point.dateTime", from)));
+            }
+            if (to != null) {
+                bounds.add(new Document("$lt", List.of("$$point.dateTime", to)));
+            }
+            timePoints = ArrayOperators.Filter.filter(timePoints).as("point").by(new Document("$and", bounds));
+        }
+        // Without a position the window ends with the last matching time point
+        ArrayOperators.Slice slice = after == null
+                ? ArrayOperators.Slice.sliceArrayOf("points").itemCount(-limit)
+                : ArrayOperators.Slice.sliceArrayOf("points")
+                        .offset((int) Math.min(after, Integer.MAX_VALUE)).itemCount(limit);
+        TypedAggregation<Experiment> aggregation = Aggregation.newAggregation(Experiment.class,
+                Aggregation.match(Criteria.where("id").is(id)),
+                Aggregation.project().and(timePoints).as("points"),
+                Aggregation.project().and(ArrayOperators.Size.lengthOfArray("points")).as("total")
+                        .and(slice).as("points"));
+
+        return Optional.ofNullable(mongoTemplate.aggregate(aggregation, TimePointSlice.class).getUniqueMappedResult())
+                .map(window -> new TimePointPage(window.points(),
+                        after == null ? window.total() : after + window.points().size()));
+    }
+
+    @Override
+    public Stream<ExperimentItem> streamTimePoints(String id, Instant from, Instant to) {
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        pipeline.add(Aggregation.match(Criteria.where("id").is(id)));
+        pipeline.addAll(TimePointAggregations.points("timePoints", from, to));
+        return mongoTemplate.aggregateStream(Aggregation.newAggregation(Experiment.class, pipeline),
+                ExperimentItem.class);
+    }
+
+    @Override
+    public TimePointRange findTimePointRange(String id, Instant from, Instant to) {
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        pipeline.add(Aggregation.match(Criteria.where("id").is(id)));
+        pipeline.addAll(TimePointAggregations.range("timePoints", from, to));
+        return TimePointAggregations.toRange(mongoTemplate.aggregate(
+                Aggregation.newAggregation(Experiment.class, pipeline), Document.class).getUniqueMappedResult());
+    }
+
+    @Override
+    public List<TimePointInterval> aggregateTimePoints(String id, Instant start, Instant end, Duration interval,
+                                                       boolean byName) {
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        pipeline.add(Aggregation.match(Criteria.where("id").is(id)));
+        pipeline.addAll(TimePointAggregations.intervals("timePoints", start, end, interval, byName));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Experiment.class, pipeline), Document.class)
+                .getMappedResults().stream()
+                .map(group -> TimePointAggregations.toInterval(group, start, interval))
+                .toList();
+    }
+
+    @Override
+    public Optional<Experiment> patch(String id, Map<String, Object> changes, Long expectedVersion) {
+        Criteria criteria = Criteria.where("id").is(id);
+        if (expectedVersion != null) {
+            criteria.and("version").is(expectedVersion);
+        }
+        Query query = Query.query(criteria);
+        query.fields().exclude("timePoints");
+
+        Experiment experiment;
+        if (changes.isEmpty()) {
+            experiment = mongoTemplate.findOne(query, Experiment.class);
+        } else {
+            Update update = new Update().inc("version", 1);
+            changes.forEach((property, value) -> {
+                if (value == null) {
+                    update.unset(property);
+                } else {
+                    update.set(property, value);
+                }
+            });
+            experiment = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                    Experiment.class);
+        }
+        if (experiment == null && expectedVersion != null
+                && mongoTemplate.exists(Query.query(Criteria.where("id").is(id)), Experiment.class)) {
+            throw new OptimisticLockingFailureException(
+                    "Experiment " + id + " was modified, expected version " + expectedVersion);
+        }
+        return Optional.ofNullable(experiment);
+    }
+
+    @Override
+    public void initializeVersion(String id) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(id).and("version").exists(false)),
+                new Update().set("version", 0L), Experiment.class);
+    }
+
+    @Override
+    public Optional<Long> findVersion(String id) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().include("version");
+        return Optional.ofNullable(mongoTemplate.findOne(query, Experiment.class)).map(Experiment::getVersion);
+    }
+
+    @Override
+    public List<Experiment> findVersions(String after, int limit) {
+        Query query = after == null
+                ? new Query()
+                : Query.query(Criteria.where("id").gt(ExperimentRepository.toCursor(after)));
+        query.with(Sort.by("id")).limit(limit);
+        query.fields().include("id", "version");
+        return mongoTemplate.find(query, Experiment.class);
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<Experiment> experiments) {
+        Map<Integer, String> errors = new HashMap<>();
+        if (experiments.isEmpty()) {
+            return errors;
+        }
+        // Unlike insert(), bulk inserts do not initialize the version
+        experiments.stream()
+                .filter(experiment -> experiment.getVersion() == null)
+                .forEach(experiment -> experiment.setVersion(0L));
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Experiment.class)
+                    .insert(experiments)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(), error.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public List<ExperimentSummary> findSummaries(String after, int limit) {
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        if (after != null) {
+            pipeline.add(Aggregation.match(Criteria.where("id").gt(ExperimentRepository.toCursor(after))));
+        }
+        pipeline.add(Aggregation.sort(Sort.by("id")));
+        pipeline.add(Aggregation.limit(limit));
+        pipeline.add(Aggregation.project("name", "description")
+                .and("date_time_start").as("dateTimeStart")
+                .and("dateTimeFinish").as("dateTimeFinish")
+                .and(ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull("timePoints").then(List.of())))
+                .as("timePointsCount"));
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Experiment.class, pipeline), ExperimentSummary.class)
+                .getMappedResults();
+    }
+
+    @Override
+    public List<Experiment> search(ExperimentQuery query, String after, int limit) {
+        return mongoTemplate.find(searchQuery(query, after, limit), Experiment.class);
+    }
+
+    /**
+     * Result of the time point window aggregation.
+     */
+    record TimePointSlice(List<ExperimentItem> points, long total) {
+    }
+
+    static Query searchQuery(ExperimentQuery query, String after, int limit) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (after != null) {
+            criteria.add(Criteria.where("id").gt(ExperimentRepository.toCursor(after)));
+        }
+        if (query.startFrom() != null || query.startTo() != null) {
+            criteria.add(range("date_time_start", query.startFrom(), query.startTo()));
+        }
+        if (query.finishFrom() != null || query.finishTo() != null) {
+            criteria.add(range("dateTimeFinish", query.finishFrom(), query.finishTo()));
+        }
+        if (query.namePrefix() != null) {
+            // An anchored regex without metacharacters is turned into an index range on name
+            criteria.add(Criteria.where("name").regex("^" + REGEX_METACHARACTERS.matcher(query.namePrefix())
+                    .replaceAll(Matcher.quoteReplacement("\\") + "$0")));
+        }
+        if (query.running() != null) {
+            criteria.add(query.running()
+                    ? Criteria.where("dateTimeFinish").is(null)
+                    : Criteria.where("dateTimeFinish").ne(null));
+        }
+        Query result = criteria.isEmpty() ? new Query() : Query.query(new Criteria().andOperator(criteria));
+        return result.with(Sort.by("id")).limit(limit);
+    }
+
+    private static Criteria range(String field, Object from, Object to) {
+        Criteria criteria = Criteria.where(field);
+        if (from != null) {
+            criteria.gte(from);
+        }
+        if (to != null) {
+            criteria.lt(to);
+        }
+        return criteria;
+    }
+}
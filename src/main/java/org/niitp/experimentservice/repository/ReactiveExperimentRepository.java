@@ -0,0 +1,19 @@
+package org.niitp.experimentservice.repository;
+
+import org.niitp.experimentservice.model.Experiment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface ReactiveExperimentRepository extends ReactiveMongoRepository<Experiment, String> {
+
+    Flux<Experiment> findAllByOrderByIdAsc(Pageable pageable);
+
+    Flux<Experiment> findByIdGreaterThanOrderByIdAsc(Object after, Pageable pageable);
+
+    Flux<Experiment> findAllByOrderByIdAsc();
+
+    Flux<Experiment> findByIdGreaterThanOrderByIdAsc(Object after);
+}
@@ -0,0 +1,106 @@
+package org.niitp.experimentservice.repository;
+
+import org.bson.Document;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointRange;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Aggregation stages over an array of time points, shared by the time point storages. The stages follow a
+ * {@code $match} of the documents holding the array, unwind it, and group the points inside Mongo so that only
+ * the groups are returned.
+ */
+final class TimePointAggregations {
+
+    private TimePointAggregations() {
+    }
+
+    /**
+     * Stages computing the {@link TimePointRange} of the points dated within {@code [from, to)}; each bound is
+     * optional.
+     */
+    static List<AggregationOperation> range(String array, Instant from, Instant to) {
+        String dateTime = "$" + array + ".dateTime";
+        List<AggregationOperation> stages = unwind(array, from, to);
+        stages.add(context -> new Document("$group", new Document("_id", null)
+                .append("count", new Document("$sum", 1))
+                .append("first", new Document("$min", dateTime))
+                .append("last", new Document("$max", dateTime))));
+        return stages;
+    }
+
+    /**
+     * Stages counting the points dated within {@code [start, end)} per interval of the given length, and per
+     * name if {@code byName}, ordered by interval and name.
+     */
+    static List<AggregationOperation> intervals(String array, Instant start, Instant end, Duration interval,
+                                                boolean byName) {
+        String dateTime = "$" + array + ".dateTime";
+        Document key = new Document("index", new Document("$floor", new Document("$divide", List.of(
+                new Document("$subtract", List.of(dateTime, Date.from(start))), interval.toMillis()))));
+        if (byName) {
+            key.append("name", "$" + array + ".name");
+        }
+        List<AggregationOperation> stages = unwind(array, start, end);
+        stages.add(context -> new Document("$group", new Document("_id", key)
+                .append("count", new Document("$sum", 1))
+                .append("first", new Document("$min", dateTime))
+                .append("last", new Document("$max", dateTime))));
+        stages.add(context -> new Document("$sort", new Document("_id.index", 1).append("_id.name", 1)));
+        return stages;
+    }
+
+    /**
+     * Stages returning the points dated within {@code [from, to)} themselves, one document per point in array
+     * order; each bound is optional.
+     */
+    static List<AggregationOperation> points(String array, Instant from, Instant to) {
+        List<AggregationOperation> stages = unwind(array, from, to);
+        stages.add(Aggregation.replaceRoot(array));
+        return stages;
+    }
+
+    static TimePointRange toRange(Document group) {
+        if (group == null) {
+            return TimePointRange.EMPTY;
+        }
+        return new TimePointRange(group.get("count", Number.class).longValue(), instant(group.getDate("first")),
+                instant(group.getDate("last")));
+    }
+
+    static TimePointInterval toInterval(Document group, Instant start, Duration interval) {
+        Document key = group.get("_id", Document.class);
+        Instant intervalStart = start.plus(interval.multipliedBy(key.get("index", Number.class).longValue()));
+        return new TimePointInterval(intervalStart, intervalStart.plus(interval), key.getString("name"),
+                group.get("count", Number.class).longValue(), instant(group.getDate("first")),
+                instant(group.getDate("last")));
+    }
+
+    private static List<AggregationOperation> unwind(String array, Instant from, Instant to) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.unwind(array));
+        if (from != null || to != null) {
+            Criteria criteria = Criteria.where(array + ".dateTime");
+            if (from != null) {
+                criteria.gte(from);
+            }
+            if (to != null) {
+                criteria.lt(to);
+            }
+            stages.add(Aggregation.match(criteria));
+        }
+        return stages;
+    }
+
+    private static Instant instant(Date date) {
+        return date == null ? null : date.toInstant();
+    }
+}
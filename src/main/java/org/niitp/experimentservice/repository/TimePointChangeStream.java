@@ -0,0 +1,268 @@
+package org.niitp.experimentservice.repository;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.niitp.experimentservice.config.TimePointStorageProperties;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.TimePointBucket;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * One change stream cursor over the collection holding time points, reporting the time points appended to every
+ * experiment. Appended points are read from the update description, so the experiment document is never looked
+ * up: with embedded storage they are the new {@code timePoints.N} array elements, with bucketed storage the new
+ * {@code points.N} elements of a bucket, or the points of a new bucket. Replacing the whole history is not
+ * reported with embedded storage; with bucketed storage it is reported as an append of the new history.
+ * <p>
+ * The cursor runs on its own thread from {@link #start()} until {@link #close()}, and resumes after the last
+ * seen event when the connection fails. Change streams require a replica set: when the server rejects them, the
+ * thread stops and {@link #start()} fails right away for a minute.
+ */
+@Slf4j
+public class TimePointChangeStream implements AutoCloseable {
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final long OPEN_TIMEOUT_SECONDS = 10;
+    private static final long UNAVAILABLE_RETRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    /**
+     * Server errors of a deployment without change streams: a standalone server, or one without the stage at all.
+     */
+    private static final Set<Integer> UNSUPPORTED_CODES = Set.of(40573, 40324);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean bucketed;
+    private final BiConsumer<String, List<ExperimentItem>> listener;
+    private final DocumentCodec documentCodec = new DocumentCodec();
+    private volatile boolean running;
+    private CompletableFuture<Void> opened;
+    private long unavailableSince;
+    private Thread thread;
+    private BsonDocument resumeToken;
+
+    /**
+     * @param listener called on the change stream thread with the experiment id and its appended time points
+     */
+    public TimePointChangeStream(MongoTemplate mongoTemplate, TimePointStorageProperties.Storage storage,
+                                 BiConsumer<String, List<ExperimentItem>> listener) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketed = storage == TimePointStorageProperties.Storage.BUCKETED;
+        this.listener = listener;
+    }
+
+    /**
+     * Opens the cursor unless it is already open, and waits until it is, so that every change made after this
+     * returns is reported. Only the first callers wait, concurrently and for at most {@value #OPEN_TIMEOUT_SECONDS}
+     * seconds.
+     *
+     * @throws IllegalStateException if the deployment does not support change streams
+     */
+    public void start() {
+        CompletableFuture<Void> waited;
+        synchronized (this) {
+            if (!running) {
+                if (opened != null && opened.isCompletedExceptionally()
+                        && System.nanoTime() - unavailableSince < UNAVAILABLE_RETRY_NANOS) {
+                    throw new IllegalStateException("Change streams are not available");
+                }
+                running = true;
+                CompletableFuture<Void> opening = new CompletableFuture<>();
+                opened = opening;
+                thread = new Thread(() -> run(opening), "time-point-change-stream");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            waited = opened;
+        }
+        // Waited for outside the monitor, so that a slow open holds up no other caller
+        try {
+            waited.get(OPEN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Change streams are not available", e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Time point change stream is not open yet, changes may be missed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the cursor and waits for its thread to end. If interrupted while waiting, restores the interrupt and
+     * returns; the thread still ends within {@code maxAwaitTime}.
+     */
+    @Override
+    public void close() {
+        Thread stopped;
+        synchronized (this) {
+            running = false;
+            stopped = thread;
+            thread = null;
+        }
+        if (stopped != null) {
+            try {
+                stopped.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run(CompletableFuture<Void> opening) {
+        boolean failing = false;
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = watch().cursor()) {
+                opening.complete(null);
+                failing = false;
+                while (running) {
+                    // Waits at most maxAwaitTime, so that close() is noticed
+                    ChangeStreamDocument<Document> event = cursor.tryNext();
+                    resumeToken = cursor.getResumeToken();
+                    if (event != null) {
+                        dispatch(event);
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (e instanceof MongoCommandException command && UNSUPPORTED_CODES.contains(command.getErrorCode())) {
+                    unavailable(opening, command);
+                    return;
+                }
+                // Only the first of consecutive failures is worth a stack trace
+                if (!failing) {
+                    log.warn("Time point change stream failed, resuming after the last event", e);
+                    failing = true;
+                } else {
+                    log.debug("Time point change stream failed again: {}", e.getMessage());
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized void unavailable(CompletableFuture<Void> opening, MongoCommandException e) {
+        log.warn("Time point change stream is not available, live time points are disabled: {}",
+                e.getErrorMessage());
+        if (thread == Thread.currentThread()) {
+            running = false;
+            thread = null;
+        }
+        unavailableSince = System.nanoTime();
+        opening.completeExceptionally(e);
+    }
+
+    private ChangeStreamIterable<Document> watch() {
+        Class<?> type = bucketed ? TimePointBucket.class : Experiment.class;
+        List<String> operations = bucketed
+                ? List.of(OperationType.INSERT.getValue(), OperationType.UPDATE.getValue())
+                : List.of(OperationType.UPDATE.getValue());
+        ChangeStreamIterable<Document> changeStream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(type))
+                .watch(List.of(Aggregates.match(Filters.in("operationType", operations))))
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (bucketed) {
+            // Updates of a bucket do not carry its experiment id; a bucket is bounded, so looking it up is cheap
+            changeStream.fullDocument(FullDocument.UPDATE_LOOKUP);
+        }
+        return resumeToken == null ? changeStream : changeStream.resumeAfter(resumeToken);
+    }
+
+    private void dispatch(ChangeStreamDocument<Document> event) {
+        String experimentId;
+        List<ExperimentItem> timePoints;
+        if (!bucketed) {
+            experimentId = id(event.getDocumentKey().get("_id"));
+            timePoints = appended(event.getUpdateDescription().getUpdatedFields(), "timePoints");
+        } else if (event.getFullDocument() == null) {
+            // The bucket was removed before the lookup
+            return;
+        } else {
+            experimentId = event.getFullDocument().getString("experimentId");
+            timePoints = event.getOperationType() == OperationType.INSERT
+                    ? read(event.getFullDocument().getList("points", Document.class, List.of()))
+                    : appended(event.getUpdateDescription().getUpdatedFields(), "points");
+        }
+        if (experimentId != null && !timePoints.isEmpty()) {
+            listener.accept(experimentId, timePoints);
+        }
+    }
+
+    /**
+     * Returns the elements of an array that an update description reports as set: {@code field.N} keys for
+     * elements pushed onto an existing array, or the whole array when the push created it.
+     */
+    private List<ExperimentItem> appended(BsonDocument updatedFields, String field) {
+        if (updatedFields == null) {
+            return List.of();
+        }
+        List<Document> documents = new ArrayList<>();
+        if (updatedFields.isArray(field)) {
+            updatedFields.getArray(field).forEach(value -> documents.add(document(value)));
+        } else {
+            String prefix = field + ".";
+            updatedFields.entrySet().stream()
+                    .filter(entry -> index(entry.getKey(), prefix) >= 0 && entry.getValue().isDocument())
+                    .sorted(Comparator.comparingInt(entry -> index(entry.getKey(), prefix)))
+                    .map(Map.Entry::getValue)
+                    .forEach(value -> documents.add(document(value)));
+        }
+        return read(documents);
+    }
+
+    private List<ExperimentItem> read(List<Document> documents) {
+        return documents.stream()
+                .map(document -> mongoTemplate.getConverter().read(ExperimentItem.class, document))
+                .toList();
+    }
+
+    private Document document(BsonValue value) {
+        return documentCodec.decode(new BsonDocumentReader(value.asDocument()), DecoderContext.builder().build());
+    }
+
+    /**
+     * Returns the array index of a {@code field.N} key, or -1 for other keys such as {@code field.N.name}.
+     */
+    private static int index(String key, String prefix) {
+        if (!key.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(key.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String id(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.isString() ? id.asString().getValue() : null;
+    }
+}
@@ -0,0 +1,87 @@
+package org.niitp.experimentservice.repository;
+
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ExperimentSummary;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.model.TimePointRange;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage of experiment time points, selected by {@code experiments.time-points.storage}.
+ */
+public interface TimePointStore {
+
+    /**
+     * Saves the experiment together with its time points.
+     */
+    Experiment save(Experiment experiment);
+
+    /**
+     * Inserts new experiments together with their time points using unordered bulk writes.
+     *
+     * @return error messages of the experiments that were not inserted, by their index in the given list
+     */
+    Map<Integer, String> insertAll(List<Experiment> experiments);
+
+    /**
+     * Appends time points to an experiment without loading its existing time points.
+     *
+     * @return the experiment metadata with only the appended time points, or empty if there is no such experiment
+     */
+    Optional<Experiment> append(String experimentId, List<ExperimentItem> timePoints);
+
+    /**
+     * Returns a window of the time points of an experiment without loading the rest of its history. Positions
+     * count the time points matching {@code from} and {@code to} in insertion order; they stay valid while time
+     * points are only appended.
+     *
+     * @param from  inclusive lower bound of the time point date, or {@code null}
+     * @param to    exclusive upper bound of the time point date, or {@code null}
+     * @param after position to continue from, or {@code null} for the last {@code limit} matching time points
+     * @return the window, or empty if there is no such experiment
+     */
+    Optional<TimePointPage> findTimePoints(String experimentId, Instant from, Instant to, Long after, int limit);
+
+    /**
+     * Streams the time points of an experiment dated within {@code [from, to)} in insertion order from a Mongo
+     * cursor, so that memory use does not depend on the number of time points. Each bound is optional. The stream
+     * must be closed to release the cursor; it is empty if there is no such experiment.
+     */
+    Stream<ExperimentItem> streamTimePoints(String experimentId, Instant from, Instant to);
+
+    /**
+     * Returns the number and date range of the time points of an experiment dated within {@code [from, to)},
+     * computed inside Mongo. Each bound is optional.
+     */
+    TimePointRange findTimePointRange(String experimentId, Instant from, Instant to);
+
+    /**
+     * Counts the time points of an experiment dated within {@code [start, end)} per interval of the given length,
+     * and per name if {@code byName}, inside Mongo. Intervals without time points are omitted.
+     */
+    List<TimePointInterval> aggregateTimePoints(String experimentId, Instant start, Instant end, Duration interval,
+                                                boolean byName);
+
+    /**
+     * Fills in the full time point history of an experiment read from the experiment repository.
+     */
+    Experiment withTimePoints(Experiment experiment);
+
+    /**
+     * Fills in the full time point history of several experiments read from the experiment repository.
+     */
+    List<Experiment> withTimePoints(List<Experiment> experiments);
+
+    /**
+     * Fills in the number of time points of experiment summaries read from the experiment repository.
+     */
+    List<ExperimentSummary> withTimePointCounts(List<ExperimentSummary> summaries);
+}
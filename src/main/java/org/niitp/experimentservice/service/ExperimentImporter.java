@@ -0,0 +1,228 @@
+package org.niitp.experimentservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.niitp.experimentservice.config.BulkProperties;
+import org.niitp.experimentservice.config.ImportProperties;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ImportResult;
+import org.niitp.experimentservice.repository.TimePointStore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Imports experiments from a JSON Lines stream, one experiment per line, without holding more than a few batches
+ * in memory. Lines are parsed and validated one by one as they are read; valid experiments are collected into
+ * batches that are written with unordered bulk writes by a shared pool of writers. An import has at most
+ * {@code maxInFlight} batches queued or being written, and reading waits for one of them to finish.
+ * <p>
+ * Only counts and the first {@code maxRejections} rejected lines are kept, so the result does not grow with the
+ * file either.
+ */
+@Service
+@Slf4j
+public class ExperimentImporter implements DisposableBean {
+
+    private final TimePointStore timePointStore;
+    private final ObjectReader reader;
+    private final Validator validator;
+    private final ExperimentMetrics metrics;
+    private final BulkProperties bulkProperties;
+    private final ImportProperties properties;
+    private final ExecutorService writers;
+
+    public ExperimentImporter(TimePointStore timePointStore, ObjectMapper objectMapper, Validator validator,
+                              ExperimentMetrics metrics, BulkProperties bulkProperties, ImportProperties properties) {
+        this.timePointStore = timePointStore;
+        this.reader = objectMapper.readerFor(Experiment.class);
+        this.validator = validator;
+        this.metrics = metrics;
+        this.bulkProperties = bulkProperties;
+        this.properties = properties;
+        this.writers = Executors.newFixedThreadPool(properties.writers(),
+                new CustomizableThreadFactory("import-writer-"));
+    }
+
+    /**
+     * Reads the stream to its end and returns once every valid experiment is written. Blank lines are skipped
+     * but counted in line numbers. A line that is not a valid experiment, or whose batch fails to be written, is
+     * rejected without stopping the import.
+     */
+    @Timed(value = "experiment.import", histogram = true)
+    public ImportResult importExperiments(InputStream in) throws IOException {
+        long started = System.nanoTime();
+        Import anImport = new Import();
+        List<Experiment> batch = new ArrayList<>(bulkProperties.chunkSize());
+        List<Long> batchLines = new ArrayList<>(bulkProperties.chunkSize());
+        long lineNumber = 0;
+        try {
+            BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                anImport.lines.incrementAndGet();
+                Experiment experiment = parse(line, lineNumber, anImport);
+                if (experiment == null) {
+                    continue;
+                }
+                batch.add(experiment);
+                batchLines.add(lineNumber);
+                if (batch.size() == bulkProperties.chunkSize()) {
+                    anImport.write(batch, batchLines);
+                    batch = new ArrayList<>(bulkProperties.chunkSize());
+                    batchLines = new ArrayList<>(bulkProperties.chunkSize());
+                }
+            }
+            if (!batch.isEmpty()) {
+                anImport.write(batch, batchLines);
+            }
+        } finally {
+            anImport.awaitWrites();
+        }
+
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        long lines = anImport.lines.get();
+        double perSecond = millis == 0 ? lines : lines * 1000.0 / millis;
+        log.info("Imported {} of {} experiments in {} ms ({} lines/s), rejected {}", anImport.inserted.get(), lines,
+                millis, Math.round(perSecond), anImport.rejected.get());
+        return new ImportResult(lines, anImport.inserted.get(), anImport.rejected.get(), millis, perSecond,
+                anImport.rejections());
+    }
+
+    @Override
+    public void destroy() {
+        writers.shutdownNow();
+    }
+
+    /**
+     * Parses and validates one line.
+     *
+     * @return the experiment with an id assigned, or {@code null} if the line was rejected
+     */
+    private Experiment parse(String line, long lineNumber, Import anImport) {
+        Experiment experiment;
+        try {
+            experiment = reader.readValue(line);
+        } catch (JsonProcessingException e) {
+            anImport.reject(lineNumber, e.getOriginalMessage());
+            return null;
+        }
+        Set<ConstraintViolation<Experiment>> violations = experiment == null ? Set.of() : validator.validate(experiment);
+        if (experiment == null || !violations.isEmpty()) {
+            anImport.reject(lineNumber, experiment == null ? "Line is not an experiment" : violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.joining("; ")));
+            return null;
+        }
+        if (experiment.getId() == null) {
+            experiment.setId(new ObjectId().toHexString());
+        }
+        return experiment;
+    }
+
+    /**
+     * State of one import, shared between the reading thread and the writers.
+     */
+    private class Import {
+
+        private final AtomicLong lines = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final Semaphore inFlight = new Semaphore(properties.maxInFlight());
+        private final TreeMap<Long, String> rejections = new TreeMap<>();
+
+        /**
+         * Hands a batch to the writers, waiting while {@code maxInFlight} batches of this import are pending.
+         */
+        void write(List<Experiment> batch, List<Long> batchLines) throws InterruptedIOException {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            }
+            try {
+                writers.execute(() -> {
+                    try {
+                        insert(batch, batchLines);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        void awaitWrites() {
+            inFlight.acquireUninterruptibly(properties.maxInFlight());
+            inFlight.release(properties.maxInFlight());
+        }
+
+        private void insert(List<Experiment> batch, List<Long> batchLines) {
+            Map<Integer, String> errors;
+            try {
+                errors = timePointStore.insertAll(batch);
+            } catch (RuntimeException e) {
+                log.warn("Failed to write a batch of {} imported experiments from line {}", batch.size(),
+                        batchLines.get(0), e);
+                batchLines.forEach(line -> reject(line, e.getMessage()));
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                String error = errors.get(i);
+                if (error == null) {
+                    inserted.incrementAndGet();
+                    metrics.inserted(batch.get(i));
+                } else {
+                    reject(batchLines.get(i), error);
+                }
+            }
+        }
+
+        void reject(long line, String error) {
+            rejected.incrementAndGet();
+            synchronized (rejections) {
+                rejections.put(line, error);
+                if (rejections.size() > properties.maxRejections()) {
+                    rejections.pollLastEntry();
+                }
+            }
+        }
+
+        List<ImportResult.Rejection> rejections() {
+            synchronized (rejections) {
+                return rejections.entrySet().stream()
+                        .map(rejection -> new ImportResult.Rejection(rejection.getKey(), rejection.getValue()))
+                        .toList();
+            }
+        }
+    }
+}
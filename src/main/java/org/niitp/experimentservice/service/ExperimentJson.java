@@ -0,0 +1,9 @@
+package org.niitp.experimentservice.service;
+
+/**
+ * An experiment serialized to JSON, with the version it was serialized at.
+ *
+ * @param version version of the experiment, {@code null} for experiments written before versioning
+ */
+public record ExperimentJson(Long version, byte[] json) {
+}
@@ -0,0 +1,58 @@
+package org.niitp.experimentservice.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.niitp.experimentservice.model.Experiment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Distributions of the number of time points handled by the experiment service: per experiment written or read
+ * ({@code experiment.time.points}, tagged by {@code operation}) and per append ({@code experiment.time.points.appended}).
+ */
+@Component
+public class ExperimentMetrics {
+
+    private final DistributionSummary inserted;
+    private final DistributionSummary updated;
+    private final DistributionSummary read;
+    private final DistributionSummary appended;
+
+    public ExperimentMetrics(MeterRegistry meterRegistry) {
+        this.inserted = timePoints("insert").register(meterRegistry);
+        this.updated = timePoints("update").register(meterRegistry);
+        this.read = timePoints("read").register(meterRegistry);
+        this.appended = DistributionSummary.builder("experiment.time.points.appended")
+                .description("Time points per append request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void inserted(Experiment experiment) {
+        inserted.record(size(experiment.getTimePoints()));
+    }
+
+    public void updated(Experiment experiment) {
+        updated.record(size(experiment.getTimePoints()));
+    }
+
+    public void read(Experiment experiment) {
+        read.record(size(experiment.getTimePoints()));
+    }
+
+    public void appended(int timePoints) {
+        appended.record(timePoints);
+    }
+
+    private static DistributionSummary.Builder timePoints(String operation) {
+        return DistributionSummary.builder("experiment.time.points")
+                .description("Time points per experiment")
+                .tag("operation", operation)
+                .publishPercentileHistogram();
+    }
+
+    private static int size(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+}
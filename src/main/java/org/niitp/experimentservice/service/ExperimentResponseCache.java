@@ -0,0 +1,49 @@
+package org.niitp.experimentservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.niitp.experimentservice.config.ResponseCacheProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Size-bounded in-process cache of experiments already serialized to JSON, keyed by experiment id. The cached
+ * version lets conditional requests be answered without reading the experiment. Entries expire {@code ttl} after
+ * they are written, which bounds how stale they get when another instance changes the experiment.
+ * Hit, miss and eviction counters are published as {@code cache.*} meters with {@code cache=experimentResponses}.
+ */
+@Component
+public class ExperimentResponseCache {
+
+    private final Cache<String, ExperimentJson> cache;
+
+    public ExperimentResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.maxSize().toBytes())
+                .weigher((String id, ExperimentJson json) -> json.json().length)
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "experimentResponses");
+    }
+
+    /**
+     * Returns the cached JSON of an experiment, serializing and caching it with the loader on a miss.
+     * Nothing is cached when the loader returns {@code null}.
+     */
+    public Optional<ExperimentJson> get(String id, Function<String, ExperimentJson> loader) {
+        return Optional.ofNullable(cache.get(id, loader));
+    }
+
+    public Optional<ExperimentJson> getIfPresent(String id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+}
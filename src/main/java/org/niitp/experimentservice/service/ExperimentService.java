@@ -1,40 +1,315 @@
 package org.niitp.experimentservice.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.niitp.experimentservice.config.BulkProperties;
+import org.niitp.experimentservice.json.IsoInstantCodec;
+import org.niitp.experimentservice.model.BulkItemResult;
+import org.niitp.experimentservice.model.BulkResult;
 import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ExperimentQuery;
+import org.niitp.experimentservice.model.ExperimentSummary;
+import org.niitp.experimentservice.model.TimePointExportFormat;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.model.TimePointRange;
 import org.niitp.experimentservice.repository.ExperimentRepository;
+import org.niitp.experimentservice.repository.TimePointStore;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Every public method is timed as {@code experiment.service}, tagged by {@code method} and {@code exception}.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 @Validated
+@Timed(value = "experiment.service", histogram = true)
 public class ExperimentService {
 
     private final ExperimentRepository experimentRepository;
+    private final TimePointStore timePointStore;
+    private final ObjectMapper objectMapper;
+    private final ExperimentResponseCache responseCache;
+    private final Validator validator;
+    private final BulkProperties bulkProperties;
+    private final ExperimentMetrics metrics;
+    private final Optional<TimePointAppendBuffer> appendBuffer;
 
-    public List<Experiment> getExperiments() {
-        List<Experiment> experiments = experimentRepository.findAll();
-        log.info("Fetched all experiments: {}", experiments);
-        return experiments;
+    /**
+     * Most intervals one time point aggregation may return, per name.
+     */
+    public static final int MAX_INTERVALS = 10000;
+
+    /**
+     * Fields of a merge patch by their JSON name.
+     */
+    private static final Map<String, PatchableField> PATCHABLE_FIELDS = Map.of(
+            "name", new PatchableField("name", Experiment::getName),
+            "description", new PatchableField("description", Experiment::getDescription),
+            "date_time_start", new PatchableField("date_time_start", Experiment::getDate_time_start),
+            "date_time_finish", new PatchableField("dateTimeFinish", Experiment::getDateTimeFinish));
+
+    /**
+     * Returns one page of experiments ordered by id, starting right after the given cursor.
+     *
+     * @param after id of the last experiment of the previous page, or {@code null} for the first page
+     * @param limit maximum number of experiments in the page
+     */
+    public List<Experiment> getExperiments(String after, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<Experiment> experiments = after == null
+                ? experimentRepository.findAllByOrderByIdAsc(page)
+                : experimentRepository.findByIdGreaterThanOrderByIdAsc(ExperimentRepository.toCursor(after), page);
+        log.debug("Fetched {} experiments after {}", experiments.size(), after);
+        return timePointStore.withTimePoints(experiments);
+    }
+
+    /**
+     * Returns one page of the experiments matching the query, ordered by id.
+     *
+     * @param after id of the last experiment of the previous page, or {@code null} for the first page
+     * @param limit maximum number of experiments in the page
+     */
+    public List<Experiment> findExperiments(ExperimentQuery query, String after, int limit) {
+        List<Experiment> experiments = experimentRepository.search(query, after, limit);
+        log.debug("Found {} experiments matching {} after {}", experiments.size(), query, after);
+        return timePointStore.withTimePoints(experiments);
+    }
+
+    /**
+     * Returns one page of experiment summaries ordered by id, without loading any time points.
+     *
+     * @param after id of the last experiment of the previous page, or {@code null} for the first page
+     * @param limit maximum number of summaries in the page
+     */
+    public List<ExperimentSummary> getExperimentSummaries(String after, int limit) {
+        List<ExperimentSummary> summaries = timePointStore.withTimePointCounts(
+                experimentRepository.findSummaries(after, limit));
+        log.debug("Fetched {} experiment summaries after {}", summaries.size(), after);
+        return summaries;
+    }
+
+    /**
+     * Writes all experiments after the given cursor as newline-delimited JSON, reading them from a Mongo cursor
+     * one document at a time so that memory use does not depend on the collection size.
+     */
+    public void streamExperiments(String after, OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Experiment> experiments = after == null
+                ? experimentRepository.streamAllByOrderByIdAsc()
+                : experimentRepository.streamByIdGreaterThanOrderByIdAsc(ExperimentRepository.toCursor(after));
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (Experiment experiment : (Iterable<Experiment>) experiments::iterator) {
+                objectMapper.writeValue(generator, timePointStore.withTimePoints(experiment));
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        log.info("Streamed {} experiments after {}", count, after);
     }
 
     public Optional<Experiment> getExperimentById(String id) {
-        return experimentRepository.findById(id);
+        Optional<Experiment> experiment = experimentRepository.findById(id).map(timePointStore::withTimePoints);
+        experiment.ifPresent(metrics::read);
+        return experiment;
+    }
+
+    public boolean experimentExists(String id) {
+        return experimentRepository.existsById(id);
+    }
+
+    /**
+     * Returns a window of the time points of an experiment, reading neither the rest of its history nor its
+     * metadata. See {@link TimePointStore#findTimePoints}.
+     *
+     * @return the window, or empty if there is no such experiment
+     */
+    public Optional<TimePointPage> getTimePoints(String id, Instant from, Instant to, Long after, int limit) {
+        Optional<TimePointPage> page = timePointStore.findTimePoints(id, from, to, after, limit);
+        page.ifPresent(window -> log.debug("Fetched {} time points of experiment {} from {} to {} after {}",
+                window.timePoints().size(), id, from, to, after));
+        return page;
+    }
+
+    /**
+     * Writes the time points of an experiment dated within {@code [from, to)} in the given format, reading them
+     * from a Mongo cursor one at a time so that memory use does not depend on the size of the experiment. Dates
+     * are written as in JSON responses. Each bound is optional; nothing but the CSV header is written if there is
+     * no such experiment.
+     */
+    public void exportTimePoints(String id, Instant from, Instant to, TimePointExportFormat format,
+                                 OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<ExperimentItem> timePoints = timePointStore.streamTimePoints(id, from, to)) {
+            Iterable<ExperimentItem> items = timePoints::iterator;
+            if (format == TimePointExportFormat.CSV) {
+                ZoneRules zone = objectMapper.getSerializationConfig().getTimeZone().toZoneId().getRules();
+                char[] date = new char[IsoInstantCodec.MAX_LENGTH];
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                writer.write("name,description,date_time\r\n");
+                for (ExperimentItem item : items) {
+                    writeCsvField(writer, item.getName());
+                    writer.write(',');
+                    writeCsvField(writer, item.getDescription());
+                    writer.write(',');
+                    if (item.getDateTime() != null) {
+                        writer.write(date, 0, IsoInstantCodec.format(item.getDateTime(), zone, date));
+                    }
+                    writer.write("\r\n");
+                    count++;
+                }
+                writer.flush();
+            } else {
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    generator.setRootValueSeparator(null);
+                    for (ExperimentItem item : items) {
+                        objectMapper.writeValue(generator, item);
+                        generator.writeRaw('\n');
+                        count++;
+                    }
+                }
+            }
+        }
+        log.info("Exported {} time points of experiment {} from {} to {} as {}", count, id, from, to, format);
+    }
+
+    /**
+     * Downsamples the time points of an experiment dated within {@code [from, to)} to per-interval counts, computed
+     * inside Mongo so that only the intervals are read. A missing bound defaults to the first or last time point.
+     *
+     * @param interval  length of the intervals, or {@code null} to split the range into {@code intervals} equal ones
+     * @param intervals number of intervals when no length is given
+     * @param byName    count every name separately within an interval
+     * @return the non-empty intervals in order, or empty if there is no such experiment
+     */
+    public Optional<List<TimePointInterval>> aggregateTimePoints(String id, Instant from, Instant to,
+                                                                 Duration interval, int intervals, boolean byName) {
+        if (!experimentRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        Instant start = from;
+        Instant end = to;
+        if (start == null || end == null) {
+            TimePointRange range = timePointStore.findTimePointRange(id, from, to);
+            if (range.count() == 0) {
+                return Optional.of(List.of());
+            }
+            start = from != null ? from : range.first();
+            // The last time point belongs to the range
+            end = to != null ? to : range.last().plusMillis(1);
+        }
+        if (!end.isAfter(start)) {
+            return Optional.of(List.of());
+        }
+
+        long rangeMillis = Duration.between(start, end).toMillis();
+        Duration length = interval != null
+                ? interval
+                : Duration.ofMillis(Math.max(1, Math.ceilDiv(rangeMillis, intervals)));
+        if (length.toMillis() < 1 || Math.ceilDiv(rangeMillis, length.toMillis()) > MAX_INTERVALS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Interval must split the range into at most " + MAX_INTERVALS + " intervals of at least 1ms");
+        }
+        List<TimePointInterval> result = timePointStore.aggregateTimePoints(id, start, end, length, byName);
+        log.debug("Aggregated time points of experiment {} into {} intervals of {}", id, result.size(), length);
+        return Optional.of(result);
+    }
+
+    /**
+     * Returns the experiment already serialized to JSON, from the response cache when possible.
+     */
+    public Optional<ExperimentJson> getExperimentJsonById(String id) {
+        return responseCache.get(id, key -> getExperimentById(key)
+                .map(experiment -> new ExperimentJson(experiment.getVersion(), toJson(experiment)))
+                .orElse(null));
+    }
+
+    /**
+     * Returns the version of an experiment without loading its time points: from the response cache when
+     * possible, otherwise with a query that reads only the version.
+     *
+     * @return the version, or empty if there is no such experiment or it was written before versioning
+     */
+    public Optional<Long> getExperimentVersion(String id) {
+        return responseCache.getIfPresent(id)
+                .map(ExperimentJson::version)
+                .or(() -> experimentRepository.findVersion(id));
+    }
+
+    /**
+     * Returns the entity tag of a page of experiments, see {@link #getExperiments}, reading only the ids and
+     * versions of its experiments.
+     */
+    public String getExperimentsTag(String after, int limit) {
+        return pageTag(experimentRepository.findVersions(after, limit));
+    }
+
+    /**
+     * Entity tag of a page of experiments. Every write increments the version of the experiment it changes, so the
+     * tag changes whenever an experiment of the page changes, or when the page gets other experiments.
+     */
+    public static String pageTag(List<Experiment> experiments) {
+        StringBuilder versions = new StringBuilder(experiments.size() * 32);
+        for (Experiment experiment : experiments) {
+            versions.append(experiment.getId()).append(':').append(experiment.getVersion()).append('\n');
+        }
+        return DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
     }
 
     public Experiment addExperiment(@Valid Experiment experiment) {
 //        try {
-            Experiment savedExperiment = experimentRepository.save(experiment);
-            log.info("Inserted experiment: {}", savedExperiment);
+            // A new experiment has no version, so posting an existing id fails instead of replacing it
+            Experiment savedExperiment = timePointStore.save(experiment);
+            metrics.inserted(savedExperiment);
+            log.info("Inserted experiment {} with {} time points", savedExperiment.getId(),
+                    size(savedExperiment.getTimePoints()));
             return savedExperiment;
 //        } catch (Exception e) {
 //            log.error("Error occurred while inserting experiment: {}", e.getMessage());
@@ -42,14 +317,174 @@ public class ExperimentService {
 //        }
     }
 
+    /**
+     * Inserts experiments read one by one from a JSON array or a newline-delimited JSON stream. Each experiment
+     * is validated on its own and the valid ones are written in chunks with unordered bulk writes, so invalid or
+     * conflicting experiments are reported without failing the rest of the batch. Reading stops at malformed JSON,
+     * which is reported as the last item, and the experiments read before it are still written.
+     */
+    public BulkResult addExperiments(InputStream in) throws IOException {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<Experiment> chunk = new ArrayList<>(bulkProperties.chunkSize());
+        List<Integer> chunkIndexes = new ArrayList<>(bulkProperties.chunkSize());
+        int index = 0;
+        try (MappingIterator<Experiment> experiments = objectMapper.readerFor(Experiment.class).readValues(in)) {
+            while (experiments.hasNextValue()) {
+                Experiment experiment;
+                try {
+                    experiment = experiments.nextValue();
+                } catch (JsonMappingException e) {
+                    results.add(BulkItemResult.rejected(index++, e.getOriginalMessage()));
+                    continue;
+                }
+                Set<ConstraintViolation<Experiment>> violations = validator.validate(experiment);
+                if (!violations.isEmpty()) {
+                    results.add(BulkItemResult.rejected(index++, violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .collect(Collectors.joining("; "))));
+                    continue;
+                }
+                if (experiment.getId() == null) {
+                    experiment.setId(new ObjectId().toHexString());
+                }
+                chunk.add(experiment);
+                chunkIndexes.add(index++);
+                if (chunk.size() == bulkProperties.chunkSize()) {
+                    insertChunk(chunk, chunkIndexes, results);
+                }
+            }
+        } catch (StreamReadException e) {
+            // Malformed JSON loses the position in the stream, so the experiments after it can't be told apart
+            results.add(BulkItemResult.rejected(index, "Malformed JSON, the rest of the request was not read: "
+                    + e.getOriginalMessage()));
+        }
+        insertChunk(chunk, chunkIndexes, results);
+        results.sort(Comparator.comparingInt(BulkItemResult::index));
+
+        int rejected = (int) results.stream().filter(result -> result.error() != null).count();
+        log.info("Bulk inserted {} experiments, rejected {}", results.size() - rejected, rejected);
+        return new BulkResult(results.size() - rejected, rejected, results);
+    }
+
+    private void insertChunk(List<Experiment> chunk, List<Integer> chunkIndexes, List<BulkItemResult> results) {
+        Map<Integer, String> errors = timePointStore.insertAll(chunk);
+        for (int i = 0; i < chunk.size(); i++) {
+            String error = errors.get(i);
+            if (error == null) {
+                metrics.inserted(chunk.get(i));
+            }
+            results.add(error == null
+                    ? BulkItemResult.inserted(chunkIndexes.get(i), chunk.get(i).getId())
+                    : BulkItemResult.rejected(chunkIndexes.get(i), error));
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
     public Experiment updateExperiment(@Valid Experiment experiment) {
 //        try {
-            Experiment updatedExperiment = experimentRepository.save(experiment);
-            log.info("Updated experiment: {}", updatedExperiment);
+            if (experiment.getVersion() == null) {
+                // Written before versioning, without a version the save would be an insert
+                experimentRepository.initializeVersion(experiment.getId());
+                experiment.setVersion(0L);
+            }
+            Experiment updatedExperiment = timePointStore.save(experiment);
+            responseCache.invalidate(updatedExperiment.getId());
+            metrics.updated(updatedExperiment);
+            log.info("Updated experiment {} with {} time points", updatedExperiment.getId(),
+                    size(updatedExperiment.getTimePoints()));
             return updatedExperiment;
 //        } catch (Exception e) {
 //            log.error("Error occurred while updating experiment: {}", e.getMessage());
 //            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to update experiment");
 //        }
     }
+
+    /**
+     * Applies a JSON Merge Patch (RFC 7396) to the experiment metadata with one targeted update, so that only the
+     * patched fields are written: a field set to {@code null} is removed, the others are set. Time points cannot be
+     * patched, they are appended with {@link #addTimePoints}.
+     *
+     * @param expectedVersion version the patch is based on, or {@code null} to patch any version
+     * @return the patched experiment without its time points, or empty if there is no such experiment
+     * @throws OptimisticLockingFailureException if the experiment has another version
+     */
+    public Optional<Experiment> patchExperiment(String id, ObjectNode patch, Long expectedVersion) {
+        Experiment values;
+        try {
+            values = objectMapper.treeToValue(patch, Experiment.class);
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getOriginalMessage());
+        }
+
+        Map<String, Object> changes = new LinkedHashMap<>();
+        Set<ConstraintViolation<Experiment>> violations = new HashSet<>();
+        for (Iterator<String> fields = patch.fieldNames(); fields.hasNext(); ) {
+            String field = fields.next();
+            PatchableField patchable = PATCHABLE_FIELDS.get(field);
+            if (patchable == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Field cannot be patched: " + field);
+            }
+            violations.addAll(validator.validateProperty(values, patchable.property()));
+            changes.put(patchable.property(), patchable.value().apply(values));
+        }
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        Optional<Experiment> experiment = experimentRepository.patch(id, changes, expectedVersion);
+        responseCache.invalidate(id);
+        log.info("Patched fields {} of experiment {}", changes.keySet(), id);
+        return experiment;
+    }
+
+    /**
+     * Appends time points to an experiment without loading its existing time points. With the append buffer
+     * enabled, appends to the same experiment are coalesced into one write, see {@link TimePointAppendBuffer}.
+     *
+     * @return the experiment metadata with only the appended time points, or empty if there is no such experiment
+     */
+    public Optional<Experiment> addTimePoints(String id, List<@Valid ExperimentItem> timePoints) {
+        Optional<Experiment> experiment;
+        if (appendBuffer.isPresent()) {
+            experiment = appendBuffer.get().append(id, timePoints);
+        } else {
+            experiment = timePointStore.append(id, timePoints);
+            responseCache.invalidate(id);
+        }
+        metrics.appended(timePoints.size());
+        log.debug("Appended {} time points to experiment {}", timePoints.size(), id);
+        return experiment;
+    }
+
+    private record PatchableField(String property, Function<Experiment, Object> value) {
+    }
+
+    /**
+     * Writes a CSV field, quoting it if it contains a separator, a quote or a line break.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static int size(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    private byte[] toJson(Experiment experiment) {
+        try {
+            return objectMapper.writeValueAsBytes(experiment);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize experiment " + experiment.getId(), e);
+        }
+    }
 }
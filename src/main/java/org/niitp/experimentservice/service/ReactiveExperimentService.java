@@ -0,0 +1,208 @@
+package org.niitp.experimentservice.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.niitp.experimentservice.config.BulkProperties;
+import org.niitp.experimentservice.config.TimePointStorageProperties;
+import org.niitp.experimentservice.model.BulkItemResult;
+import org.niitp.experimentservice.model.BulkResult;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.repository.ExperimentRepository;
+import org.niitp.experimentservice.repository.ReactiveExperimentRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of {@link ExperimentService}, used when the service runs on the reactive stack
+ * ({@code reactive} profile). Time points are always embedded in the experiment document in this mode.
+ */
+@Service
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExperimentService {
+
+    private final ReactiveExperimentRepository experimentRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Validator validator;
+    private final BulkProperties bulkProperties;
+
+    public ReactiveExperimentService(ReactiveExperimentRepository experimentRepository,
+                                     ReactiveMongoTemplate mongoTemplate,
+                                     Validator validator,
+                                     BulkProperties bulkProperties,
+                                     TimePointStorageProperties timePointStorageProperties) {
+        if (timePointStorageProperties.storage() != TimePointStorageProperties.Storage.EMBEDDED) {
+            throw new IllegalStateException("The reactive stack supports only embedded time point storage");
+        }
+        this.experimentRepository = experimentRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.validator = validator;
+        this.bulkProperties = bulkProperties;
+    }
+
+    /**
+     * Returns one page of experiments ordered by id, starting right after the given cursor.
+     */
+    public Flux<Experiment> getExperiments(String after, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return after == null
+                ? experimentRepository.findAllByOrderByIdAsc(page)
+                : experimentRepository.findByIdGreaterThanOrderByIdAsc(ExperimentRepository.toCursor(after), page);
+    }
+
+    /**
+     * Returns all experiments after the given cursor, read from a Mongo cursor as the subscriber requests them.
+     */
+    public Flux<Experiment> streamExperiments(String after) {
+        return after == null
+                ? experimentRepository.findAllByOrderByIdAsc()
+                : experimentRepository.findByIdGreaterThanOrderByIdAsc(ExperimentRepository.toCursor(after));
+    }
+
+    public Mono<Experiment> getExperimentById(String id) {
+        return experimentRepository.findById(id);
+    }
+
+    public Mono<Experiment> addExperiment(Experiment experiment) {
+        return experimentRepository.save(experiment)
+                .doOnNext(savedExperiment -> log.info("Inserted experiment {}", savedExperiment.getId()));
+    }
+
+    /**
+     * Replaces the fields of an existing experiment.
+     *
+     * @return the updated experiment, or empty if there is no such experiment
+     */
+    public Mono<Experiment> updateExperiment(String id, Experiment updatedExperiment) {
+        return experimentRepository.findById(id)
+                .map(existingExperiment -> {
+                    existingExperiment.setName(updatedExperiment.getName());
+                    existingExperiment.setDescription(updatedExperiment.getDescription());
+                    existingExperiment.setDate_time_start(updatedExperiment.getDate_time_start());
+                    existingExperiment.setDateTimeFinish(updatedExperiment.getDateTimeFinish());
+                    existingExperiment.setTimePoints(updatedExperiment.getTimePoints());
+                    return existingExperiment;
+                })
+                .flatMap(existingExperiment -> existingExperiment.getVersion() != null
+                        ? Mono.just(existingExperiment)
+                        // Written before versioning, without a version the save would be an insert
+                        : mongoTemplate.updateFirst(
+                                        Query.query(Criteria.where("id").is(id).and("version").exists(false)),
+                                        new Update().set("version", 0L), Experiment.class)
+                                .doOnNext(result -> existingExperiment.setVersion(0L))
+                                .thenReturn(existingExperiment))
+                .flatMap(experimentRepository::save)
+                .doOnNext(savedExperiment -> log.info("Updated experiment {}", savedExperiment.getId()));
+    }
+
+    /**
+     * Atomically appends time points with a single {@code $push}/{@code $each} update.
+     *
+     * @return the experiment metadata with only the appended time points, or empty if there is no such experiment
+     */
+    public Mono<Experiment> addTimePoints(String id, List<ExperimentItem> timePoints) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().slice("timePoints", -timePoints.size());
+        Update update = new Update().push("timePoints").each(timePoints.toArray()).inc("version", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Experiment.class)
+                .doOnNext(experiment -> log.info("Appended {} time points to experiment {}", timePoints.size(), id));
+    }
+
+    /**
+     * Validates each experiment on its own and inserts the valid ones in chunks with unordered bulk writes.
+     */
+    public Mono<BulkResult> addExperiments(Flux<Experiment> experiments) {
+        return experiments.index()
+                .buffer(bulkProperties.chunkSize())
+                .concatMap(this::insertChunk)
+                .collectSortedList(Comparator.comparingInt(BulkItemResult::index))
+                .map(results -> {
+                    int rejected = (int) results.stream().filter(result -> result.error() != null).count();
+                    log.info("Bulk inserted {} experiments, rejected {}", results.size() - rejected, rejected);
+                    return new BulkResult(results.size() - rejected, rejected, results);
+                });
+    }
+
+    private Flux<BulkItemResult> insertChunk(List<Tuple2<Long, Experiment>> chunk) {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<Experiment> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (Tuple2<Long, Experiment> item : chunk) {
+            int index = item.getT1().intValue();
+            Experiment experiment = item.getT2();
+            Set<ConstraintViolation<Experiment>> violations = validator.validate(experiment);
+            if (!violations.isEmpty()) {
+                results.add(BulkItemResult.rejected(index, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .collect(Collectors.joining("; "))));
+                continue;
+            }
+            if (experiment.getId() == null) {
+                experiment.setId(new ObjectId().toHexString());
+            }
+            // Unlike insert(), bulk inserts do not initialize the version
+            experiment.setVersion(0L);
+            valid.add(experiment);
+            validIndexes.add(index);
+        }
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Experiment.class)
+                .insert(valid)
+                .execute()
+                .map(bulkWriteResult -> Map.<Integer, String>of())
+                .onErrorResume(e -> writeErrors(e) != null, e -> Mono.just(writeErrors(e)))
+                .flatMapIterable(errors -> {
+                    for (int i = 0; i < valid.size(); i++) {
+                        String error = errors.get(i);
+                        results.add(error == null
+                                ? BulkItemResult.inserted(validIndexes.get(i), valid.get(i).getId())
+                                : BulkItemResult.rejected(validIndexes.get(i), error));
+                    }
+                    return results;
+                });
+    }
+
+    /**
+     * Returns the per-document errors of a failed bulk write by their index in the chunk, or {@code null} if the
+     * exception is not caused by individual write errors. The driver exception may be wrapped by the template's
+     * exception translation.
+     */
+    private static Map<Integer, String> writeErrors(Throwable e) {
+        while (e != null && !(e instanceof MongoBulkWriteException)) {
+            e = e.getCause();
+        }
+        if (e == null) {
+            return null;
+        }
+        Map<Integer, String> errors = new HashMap<>();
+        for (BulkWriteError error : ((MongoBulkWriteException) e).getWriteErrors()) {
+            errors.put(error.getIndex(), error.getMessage());
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,381 @@
+package org.niitp.experimentservice.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.niitp.experimentservice.config.AppendBufferProperties;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.repository.TimePointStore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces time point appends to the same experiment into one {@link TimePointStore#append} write. Appends are
+ * collected per experiment and written as one batch when the batch reaches {@code maxPoints} or is
+ * {@code maxDelay} old, whichever comes first.
+ * <p>
+ * Batches are kept in lock stripes chosen by experiment id, so appends to different experiments rarely contend.
+ * Every stripe is flushed by the same single-threaded lane, so the batches of one experiment are written in the
+ * order they were collected. Batches are handed to the lane under the stripe lock, and appends of at least
+ * {@code maxPoints} bypass the buffer but go through the same lane right behind the experiment's buffered points.
+ * The number of buffered points is bounded by {@code capacity}, and the whole buffer is written on shutdown.
+ * <p>
+ * An append whose write is not acknowledged in time is taken out of its batch if the batch is still buffered, and
+ * answered with 503, so retrying it is safe. Once the batch is on its lane the append can no longer be withdrawn;
+ * it is answered with 504, as it may still be written and a retry could write its points twice.
+ * <p>
+ * Points per write and buffered points are published as {@code experiment.append.buffer.flush.points} and
+ * {@code experiment.append.buffer.points}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "experiments.append-buffer.enabled", havingValue = "true")
+public class TimePointAppendBuffer implements DisposableBean {
+
+    private final TimePointStore timePointStore;
+    private final ExperimentResponseCache responseCache;
+    private final AppendBufferProperties properties;
+    private final Stripe[] stripes;
+    private final ExecutorService[] lanes;
+    private final ScheduledExecutorService ticker;
+    private final Semaphore capacity;
+    private final DistributionSummary flushedPoints;
+    private volatile boolean closed;
+
+    public TimePointAppendBuffer(TimePointStore timePointStore, ExperimentResponseCache responseCache,
+                                 AppendBufferProperties properties, MeterRegistry meterRegistry) {
+        this.timePointStore = timePointStore;
+        this.responseCache = responseCache;
+        this.properties = properties;
+        this.stripes = new Stripe[properties.stripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.lanes = new ExecutorService[properties.flushThreads()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("append-flush-" + i + "-"));
+        }
+        this.capacity = new Semaphore(properties.capacity());
+        Gauge.builder("experiment.append.buffer.points", capacity,
+                        available -> properties.capacity() - available.availablePermits())
+                .description("Time points waiting in the append buffer")
+                .register(meterRegistry);
+        this.flushedPoints = DistributionSummary.builder("experiment.append.buffer.flush.points")
+                .description("Time points per flushed write")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        long tick = Math.max(1, properties.maxDelay().toMillis() / 2);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("append-ticker-"));
+        ticker.scheduleWithFixedDelay(this::flushExpired, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers an append and acknowledges it according to the configured durability.
+     *
+     * @return with {@code ACK_AFTER_FLUSH}, the experiment metadata with only the appended time points, or empty if
+     * there is no such experiment; with {@code ACK_ON_BUFFER}, an experiment with only its id and the appended
+     * time points
+     * @throws ResponseStatusException 503 if the buffer stays full for {@code offerTimeout}, is shut down, or the
+     *                                 append is not written within {@code offerTimeout} after its batch is due and
+     *                                 was withdrawn unwritten; 504 if it was not written in time but is already
+     *                                 queued for writing, so that it may still be applied
+     */
+    public Optional<Experiment> append(String experimentId, List<ExperimentItem> timePoints) {
+        if (timePoints.size() >= properties.maxPoints()) {
+            // Nothing to coalesce, and it would take the room of many small appends
+            return await(experimentId, writeThrough(experimentId, timePoints));
+        }
+        CompletableFuture<Optional<Experiment>> written = enqueue(experimentId, timePoints);
+        if (properties.durability() == AppendBufferProperties.Durability.ACK_ON_BUFFER) {
+            return Optional.of(experiment(experimentId, timePoints));
+        }
+        return await(experimentId, written);
+    }
+
+    private Optional<Experiment> await(String experimentId, CompletableFuture<Optional<Experiment>> written) {
+        long timeout = properties.maxDelay().plus(properties.offerTimeout()).toMillis();
+        try {
+            return written.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw unacknowledged(experimentId, written, "Append was not written within " + timeout + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unacknowledged(experimentId, written, "Interrupted waiting for the append");
+        }
+    }
+
+    /**
+     * Withdraws an append that is still buffered, so that the client can safely retry it, or tells the client that
+     * it may still be written.
+     */
+    private ResponseStatusException unacknowledged(String experimentId,
+                                                   CompletableFuture<Optional<Experiment>> written, String reason) {
+        Stripe stripe = stripes[Math.floorMod(experimentId.hashCode(), stripes.length)];
+        stripe.lock.lock();
+        try {
+            Batch batch = stripe.batches.get(experimentId);
+            if (batch != null && batch.withdraw(written)) {
+                if (batch.waiters.isEmpty()) {
+                    stripe.batches.remove(experimentId);
+                }
+                return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, reason + ", it was not applied");
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, reason + ", it may still be applied");
+    }
+
+    /**
+     * Writes an append on the experiment's lane without buffering it, after the points buffered before it.
+     */
+    private CompletableFuture<Optional<Experiment>> writeThrough(String experimentId, List<ExperimentItem> timePoints) {
+        CompletableFuture<Optional<Experiment>> written = new CompletableFuture<>();
+        int stripeIndex = Math.floorMod(experimentId.hashCode(), stripes.length);
+        Stripe stripe = stripes[stripeIndex];
+        stripe.lock.lock();
+        try {
+            if (closed) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Append buffer is shut down");
+            }
+            Batch pending = stripe.batches.remove(experimentId);
+            if (pending != null) {
+                flush(stripeIndex, experimentId, pending);
+            }
+            Batch direct = new Batch(System.nanoTime(), false);
+            direct.add(timePoints, written);
+            flush(stripeIndex, experimentId, direct);
+        } finally {
+            stripe.lock.unlock();
+        }
+        return written;
+    }
+
+    private CompletableFuture<Optional<Experiment>> enqueue(String experimentId, List<ExperimentItem> timePoints) {
+        try {
+            if (!capacity.tryAcquire(timePoints.size(), properties.offerTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Append buffer is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Interrupted waiting for the append buffer");
+        }
+
+        CompletableFuture<Optional<Experiment>> written = new CompletableFuture<>();
+        int stripeIndex = Math.floorMod(experimentId.hashCode(), stripes.length);
+        Stripe stripe = stripes[stripeIndex];
+        stripe.lock.lock();
+        try {
+            // Checked under the stripe lock, so that an append is either drained on shutdown or rejected
+            if (closed) {
+                capacity.release(timePoints.size());
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Append buffer is shut down");
+            }
+            Batch batch = stripe.batches.computeIfAbsent(experimentId, id -> new Batch(System.nanoTime(), true));
+            batch.add(timePoints, written);
+            if (batch.points.size() >= properties.maxPoints()) {
+                // Handed to the lane before the lock is released, so a later batch of the experiment can't overtake it
+                stripe.batches.remove(experimentId);
+                flush(stripeIndex, experimentId, batch);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return written;
+    }
+
+    private void flushExpired() {
+        long deadline = System.nanoTime() - properties.maxDelay().toNanos();
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[i];
+            stripe.lock.lock();
+            try {
+                Iterator<Map.Entry<String, Batch>> batches = stripe.batches.entrySet().iterator();
+                while (batches.hasNext()) {
+                    Map.Entry<String, Batch> batch = batches.next();
+                    if (batch.getValue().created - deadline <= 0) {
+                        batches.remove();
+                        flush(i, batch.getKey(), batch.getValue());
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Hands a batch to the lane of its stripe. Called under the stripe lock, so batches of one experiment reach the
+     * lane in the order they were collected.
+     */
+    private void flush(int stripeIndex, String experimentId, Batch batch) {
+        try {
+            lanes[stripeIndex % lanes.length].execute(() -> write(experimentId, batch));
+        } catch (RejectedExecutionException e) {
+            log.error("Failed to write {} buffered time points of experiment {}, the append buffer is shut down",
+                    batch.points.size(), experimentId);
+            batch.release();
+            batch.fail(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Append buffer is shut down"));
+        }
+    }
+
+    private void write(String experimentId, Batch batch) {
+        try {
+            Optional<Experiment> experiment = timePointStore.append(experimentId, batch.points);
+            responseCache.invalidate(experimentId);
+            flushedPoints.record(batch.points.size());
+            if (experiment.isEmpty() && batch.buffered) {
+                log.warn("Dropped {} buffered time points of missing experiment {}", batch.points.size(),
+                        experimentId);
+            }
+            batch.complete(experiment);
+        } catch (RuntimeException e) {
+            log.error("Failed to write {} buffered time points of experiment {}", batch.points.size(),
+                    experimentId, e);
+            batch.fail(e);
+        } finally {
+            batch.release();
+        }
+    }
+
+    /**
+     * Stops accepting appends and writes everything still buffered.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        ticker.shutdownNow();
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[i];
+            stripe.lock.lock();
+            try {
+                int stripeIndex = i;
+                stripe.batches.forEach((experimentId, batch) -> flush(stripeIndex, experimentId, batch));
+                stripe.batches.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        long deadline = System.nanoTime() + properties.drainTimeout().toNanos();
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+            if (!lane.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("Append buffer was not drained within {}", properties.drainTimeout());
+            }
+        }
+    }
+
+    private static Experiment experiment(String id, List<ExperimentItem> timePoints) {
+        Experiment experiment = new Experiment();
+        experiment.setId(id);
+        experiment.setDate_time_start(null);
+        experiment.setTimePoints(timePoints);
+        return experiment;
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Batch> batches = new HashMap<>();
+    }
+
+    /**
+     * The buffered points of one experiment, and the appends they came from.
+     */
+    private final class Batch {
+
+        private final long created;
+        /**
+         * Whether the points hold {@code capacity} permits, which appends written through the buffer don't.
+         */
+        private final boolean buffered;
+        private final List<ExperimentItem> points = new ArrayList<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+
+        Batch(long created, boolean buffered) {
+            this.created = created;
+            this.buffered = buffered;
+        }
+
+        void add(List<ExperimentItem> timePoints, CompletableFuture<Optional<Experiment>> written) {
+            waiters.add(new Waiter(points.size(), timePoints.size(), written));
+            points.addAll(timePoints);
+        }
+
+        /**
+         * Answers every append with the written experiment carrying only its own points.
+         */
+        void complete(Optional<Experiment> experiment) {
+            for (Waiter waiter : waiters) {
+                waiter.written().complete(experiment.map(written -> new Experiment(written.getId(), written.getName(),
+                        written.getDescription(), written.getDate_time_start(), written.getDateTimeFinish(),
+                        points.subList(waiter.from(), waiter.from() + waiter.count()), written.getVersion())));
+            }
+        }
+
+        /**
+         * Takes the points of one append out of the batch and returns their buffer capacity.
+         *
+         * @return whether the append was in this batch
+         */
+        boolean withdraw(CompletableFuture<Optional<Experiment>> written) {
+            for (int i = 0; i < waiters.size(); i++) {
+                Waiter waiter = waiters.get(i);
+                if (waiter.written() == written) {
+                    points.subList(waiter.from(), waiter.from() + waiter.count()).clear();
+                    waiters.remove(i);
+                    // The appends after it move forward by its points
+                    for (int j = i; j < waiters.size(); j++) {
+                        Waiter later = waiters.get(j);
+                        waiters.set(j, new Waiter(later.from() - waiter.count(), later.count(), later.written()));
+                    }
+                    if (buffered) {
+                        capacity.release(waiter.count());
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void fail(RuntimeException e) {
+            waiters.forEach(waiter -> waiter.written().completeExceptionally(e));
+        }
+
+        void release() {
+            if (buffered) {
+                capacity.release(points.size());
+            }
+        }
+    }
+
+    private record Waiter(int from, int count, CompletableFuture<Optional<Experiment>> written) {
+    }
+}
@@ -0,0 +1,214 @@
+package org.niitp.experimentservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.niitp.experimentservice.config.LiveTimePointProperties;
+import org.niitp.experimentservice.config.TimePointStorageProperties;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.repository.TimePointChangeStream;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the time points appended to an experiment to its Server-Sent Events subscribers. All subscribers of all
+ * experiments share one {@link TimePointChangeStream}, opened with the first subscription, so the number of
+ * viewers adds no database load.
+ * <p>
+ * At most {@code maxSubscribers} subscriptions are open. Every subscriber has a bounded buffer of events, drained by
+ * a sender thread of its own while it has events, so the senders never outnumber the subscribers.
+ * A subscriber whose buffer is full is disconnected instead of slowing down or growing memory for the others;
+ * heartbeats go through the same buffer, so a connection that stopped reading is disconnected even when the
+ * experiment is idle. Subscribers and evictions are published as {@code experiment.live.subscribers} and
+ * {@code experiment.live.evictions}.
+ */
+@Component
+@Slf4j
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TimePointBroadcaster implements InitializingBean, DisposableBean {
+
+    static final String TIME_POINTS_EVENT = "time_points";
+
+    private final LiveTimePointProperties properties;
+    private final TimePointStorageProperties storageProperties;
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter evictions;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(
+            new CustomizableThreadFactory("sse-heartbeat-"));
+    private TimePointChangeStream changeStream;
+
+    public TimePointBroadcaster(LiveTimePointProperties properties, TimePointStorageProperties storageProperties,
+                                MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.storageProperties = storageProperties;
+        this.mongoTemplate = mongoTemplate;
+        // Senders block on slow sockets inside the synchronized SseEmitter.send, so they are platform threads
+        ThreadPoolExecutor senders = new ThreadPoolExecutor(properties.maxSubscribers(), properties.maxSubscribers(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory("sse-sender-"));
+        senders.allowCoreThreadTimeOut(true);
+        this.senders = senders;
+        Gauge.builder("experiment.live.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open time point subscriptions")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("experiment.live.evictions")
+                .description("Subscribers disconnected because their buffer was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hands {@link #publish} to the change stream and schedules the heartbeats once the broadcaster is constructed.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        changeStream = new TimePointChangeStream(mongoTemplate, storageProperties.storage(), this::publish);
+        long heartbeat = properties.heartbeat().toMillis();
+        heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribes to the time points appended to an experiment from now on. Each append is sent as one
+     * {@value #TIME_POINTS_EVENT} event with the JSON array of the appended points.
+     *
+     * @throws ResponseStatusException 503 if {@code maxSubscribers} are subscribed or the database has no change
+     *                                 streams
+     */
+    public SseEmitter subscribe(String experimentId) {
+        if (subscriberCount.incrementAndGet() > properties.maxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live subscribers");
+        }
+        try {
+            changeStream.start();
+        } catch (IllegalStateException e) {
+            subscriberCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Live time points are not available", e);
+        }
+        SseEmitter emitter = new SseEmitter(properties.timeout().toMillis());
+        Subscriber subscriber = new Subscriber(experimentId, emitter);
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::remove);
+        emitter.onError(error -> subscriber.remove());
+        subscribers.computeIfAbsent(experimentId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        log.debug("Subscribed to time points of experiment {}", experimentId);
+        return emitter;
+    }
+
+    void publish(String experimentId, List<ExperimentItem> timePoints) {
+        Set<Subscriber> experimentSubscribers = subscribers.get(experimentId);
+        if (experimentSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : experimentSubscribers) {
+            subscriber.offer(SseEmitter.event().name(TIME_POINTS_EVENT).data(timePoints, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void heartbeat() {
+        subscribers.values().forEach(experimentSubscribers -> experimentSubscribers
+                .forEach(subscriber -> subscriber.offer(SseEmitter.event().comment(""))));
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        changeStream.close();
+        subscribers.values().forEach(experimentSubscribers -> experimentSubscribers
+                .forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final String experimentId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        Subscriber(String experimentId, SseEmitter emitter) {
+            this.experimentId = experimentId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(properties.bufferSize());
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (!buffer.offer(event)) {
+                evict();
+            } else if (draining.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        /**
+         * Sends the buffered events. Only one sender runs per subscriber, so events keep their order.
+         */
+        @Override
+        public void run() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while ((event = buffer.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // The client went away, the emitter callbacks remove the subscriber
+                        remove();
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!buffer.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void evict() {
+            if (remove()) {
+                evictions.increment();
+                log.info("Disconnected slow subscriber of experiment {}", experimentId);
+                // Completing waits for a send blocked on the socket, so it is not done on the change stream thread
+                senders.execute(emitter::complete);
+            }
+        }
+
+        /**
+         * @return whether this call removed the subscriber
+         */
+        boolean remove() {
+            if (!removed.compareAndSet(false, true)) {
+                return false;
+            }
+            subscribers.computeIfPresent(experimentId, (id, experimentSubscribers) -> {
+                experimentSubscribers.remove(this);
+                return experimentSubscribers.isEmpty() ? null : experimentSubscribers;
+            });
+            subscriberCount.decrementAndGet();
+            return true;
+        }
+    }
+}
@@ -1,32 +1,61 @@
 package org.niitp.experimentservice;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
 import org.niitp.experimentservice.controller.ExperimentController;
 import org.niitp.experimentservice.model.Experiment;
 import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.ExperimentQuery;
+import org.niitp.experimentservice.model.ExperimentSummary;
+import org.niitp.experimentservice.model.ImportResult;
 import org.niitp.experimentservice.model.ResourceNotFoundException;
+import org.niitp.experimentservice.model.TimePointExportFormat;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.service.ExperimentImporter;
+import org.niitp.experimentservice.service.ExperimentJson;
 import org.niitp.experimentservice.service.ExperimentService;
+import org.niitp.experimentservice.service.TimePointBroadcaster;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.*;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -38,6 +67,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class ExperimentServiceApplicationTests {
 
     private ExperimentService experimentService;
+    private ExperimentImporter experimentImporter;
+    private TimePointBroadcaster timePointBroadcaster;
     private ExperimentController experimentController;
 
     @Container
@@ -64,7 +95,9 @@ class ExperimentServiceApplicationTests {
     @BeforeEach
     void setUp() {
         experimentService = Mockito.mock(ExperimentService.class);
-        experimentController = new ExperimentController(experimentService);
+        experimentImporter = Mockito.mock(ExperimentImporter.class);
+        timePointBroadcaster = Mockito.mock(TimePointBroadcaster.class);
+        experimentController = new ExperimentController(experimentService, experimentImporter, timePointBroadcaster);
         mockMvc = MockMvcBuilders.standaloneSetup(experimentController).build();
     }
 
@@ -75,9 +108,10 @@ class ExperimentServiceApplicationTests {
                 null, // No ID for new experiments
                 "Test Experiment",
                 "A description of the test experiment",
-                new Date(),
-                new Date(),
-                Collections.emptyList()
+                Instant.now(),
+                Instant.now(),
+                Collections.emptyList(),
+                null
         );
 
         Experiment savedExperiment = new Experiment(
@@ -86,7 +120,8 @@ class ExperimentServiceApplicationTests {
                 "A description of the test experiment",
                 newExperiment.getDate_time_start(),
                 newExperiment.getDateTimeFinish(),
-                newExperiment.getTimePoints()
+                newExperiment.getTimePoints(),
+                null
         );
 
         when(experimentService.addExperiment(any(Experiment.class))).thenReturn(savedExperiment);
@@ -131,35 +166,144 @@ class ExperimentServiceApplicationTests {
 //        verify(experimentService, times(1)).addExperiment(any(Experiment.class));
 //    }
 
+    @Test
+    void importExperiments_gzip() throws Exception {
+        String lines = """
+                {"name": "Experiment 1"}
+                {"name": ""}
+                """;
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(lines.getBytes(StandardCharsets.UTF_8));
+        }
+        when(experimentImporter.importExperiments(any())).thenAnswer(invocation -> {
+            Assertions.assertEquals(lines, new String(invocation.getArgument(0, InputStream.class).readAllBytes(),
+                    StandardCharsets.UTF_8));
+            return new ImportResult(2, 1, 1, 5, 400, List.of(new ImportResult.Rejection(2, "name: must not be empty")));
+        });
+
+        mockMvc.perform(post("/experiments/_import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .content(compressed.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted", is(1)))
+                .andExpect(jsonPath("$.rejections[0].line", is(2)));
+    }
+
+    @Test
+    void importExperiments_unsupportedEncoding() throws Exception {
+        mockMvc.perform(post("/experiments/_import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.CONTENT_ENCODING, "br")
+                        .content("{}"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verify(experimentImporter, times(0)).importExperiments(any());
+    }
+
     @Test
     void getExperimentById_success() throws Exception {
         String experimentId = "123";
-        Experiment experiment = new Experiment(
-                experimentId,
-                "Test Experiment",
-                "A description of the test experiment",
-                new Date(),
-                new Date(),
-                Collections.emptyList()
-        );
+        byte[] json = """
+                {
+                    "id": "123",
+                    "name": "Test Experiment",
+                    "description": "A description of the test experiment",
+                    "date_time_start": "2024-11-28T10:00:00.000+03:00"
+                }
+                """.getBytes(StandardCharsets.UTF_8);
 
-        when(experimentService.getExperimentById(eq(experimentId))).thenReturn(Optional.of(experiment));
+        when(experimentService.getExperimentJsonById(eq(experimentId))).thenReturn(Optional.of(new ExperimentJson(5L, json)));
 
         mockMvc.perform(get("/experiments/{id}", experimentId)
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""))
                 .andExpect(jsonPath("$.id", is("123")))
                 .andExpect(jsonPath("$.name", is("Test Experiment")))
                 .andExpect(jsonPath("$.description", is("A description of the test experiment")));
 
-        verify(experimentService, times(1)).getExperimentById(experimentId);
+        verify(experimentService, times(1)).getExperimentJsonById(experimentId);
+    }
+
+    @Test
+    void getExperimentById_defaultsToJson() throws Exception {
+        byte[] json = "{\"id\": \"123\"}".getBytes(StandardCharsets.UTF_8);
+
+        when(experimentService.getExperimentJsonById(eq("123"))).thenReturn(Optional.of(new ExperimentJson(1L, json)));
+
+        mockMvc.perform(get("/experiments/{id}", "123"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/experiments/{id}", "123")
+                        .header(HttpHeaders.ACCEPT, "application/json, application/cbor;q=0.5, */*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void getExperimentById_cbor() throws Exception {
+        Experiment experiment = new Experiment("123", "Test Experiment", null, Instant.ofEpochMilli(1732777200000L),
+                null, List.of(new ExperimentItem("Point 1", null, Instant.ofEpochMilli(1732777201000L))), 2L);
+
+        when(experimentService.getExperimentById(eq("123"))).thenReturn(Optional.of(experiment));
+
+        byte[] cbor = mockMvc.perform(get("/experiments/{id}", "123")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-cbor\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Dates are written as epoch milliseconds
+        JsonNode body = new CBORMapper().readTree(cbor);
+        Assertions.assertEquals("Test Experiment", body.get("name").asText());
+        Assertions.assertEquals(1732777200000L, body.get("date_time_start").asLong());
+        Assertions.assertEquals(1732777201000L, body.get("time_points").get(0).get("date_time").asLong());
+        verify(experimentService, times(0)).getExperimentJsonById("123");
+    }
+
+    @Test
+    void getExperimentById_notModified() throws Exception {
+        String experimentId = "123";
+
+        when(experimentService.getExperimentVersion(eq(experimentId))).thenReturn(Optional.of(5L));
+
+        mockMvc.perform(get("/experiments/{id}", experimentId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"5\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""))
+                .andExpect(content().bytes(new byte[0]));
+
+        // The experiment and its time points are not loaded
+        verify(experimentService, times(0)).getExperimentJsonById(experimentId);
+    }
+
+    @Test
+    void getExperimentById_modifiedSinceTag() throws Exception {
+        String experimentId = "123";
+        byte[] json = "{\"id\": \"123\"}".getBytes(StandardCharsets.UTF_8);
+
+        when(experimentService.getExperimentVersion(eq(experimentId))).thenReturn(Optional.of(6L));
+        when(experimentService.getExperimentJsonById(eq(experimentId))).thenReturn(Optional.of(new ExperimentJson(6L, json)));
+
+        mockMvc.perform(get("/experiments/{id}", experimentId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"5\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"6\""))
+                .andExpect(jsonPath("$.id", is("123")));
     }
 
     @Test
     void getExperimentById_notFound() throws Exception {
         String experimentId = "123";
 
-        when(experimentService.getExperimentById(eq(experimentId))).thenReturn(Optional.empty());
+        when(experimentService.getExperimentJsonById(eq(experimentId))).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/experiments/{id}", experimentId)
                         .accept(MediaType.APPLICATION_JSON))
@@ -167,7 +311,7 @@ class ExperimentServiceApplicationTests {
 //                .andExpect(result -> result.getResolvedException() instanceof ResponseStatusException)
                 .andExpect(result -> ((ResponseStatusException) result.getResolvedException()).getReason().equals("Experiment not found"));
 
-        verify(experimentService, times(1)).getExperimentById(experimentId);
+        verify(experimentService, times(1)).getExperimentJsonById(experimentId);
     }
 
 
@@ -177,20 +321,22 @@ class ExperimentServiceApplicationTests {
                 "1",
                 "Experiment 1",
                 "Description 1",
-                new Date(),
-                new Date(),
+                Instant.now(),
+                Instant.now(),
+                null,
                 null
         );
         Experiment experiment2 = new Experiment(
                 "2",
                 "Experiment 2",
                 "Description 2",
-                new Date(),
-                new Date(),
+                Instant.now(),
+                Instant.now(),
+                null,
                 null
         );
 
-        when(experimentService.getExperiments()).thenReturn(Arrays.asList(experiment1, experiment2));
+        when(experimentService.getExperiments(null, 100)).thenReturn(Arrays.asList(experiment1, experiment2));
 
         mockMvc.perform(get("/experiments")
                         .accept(MediaType.APPLICATION_JSON))
@@ -201,56 +347,271 @@ class ExperimentServiceApplicationTests {
                 .andExpect(jsonPath("$[0].description", is("Description 1")))
                 .andExpect(jsonPath("$[1].id", is("2")))
                 .andExpect(jsonPath("$[1].name", is("Experiment 2")))
-                .andExpect(jsonPath("$[1].description", is("Description 2")));
+                .andExpect(jsonPath("$[1].description", is("Description 2")))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        verify(experimentService, times(1)).getExperiments(null, 100);
+    }
+
+    @Test
+    void getExperiments_fullPageReturnsNextCursor() throws Exception {
+        Experiment experiment1 = new Experiment("1", "Experiment 1", "Description 1", Instant.now(), null, null, null);
+        Experiment experiment2 = new Experiment("2", "Experiment 2", "Description 2", Instant.now(), null, null, null);
+
+        when(experimentService.getExperiments("0", 2)).thenReturn(Arrays.asList(experiment1, experiment2));
+
+        mockMvc.perform(get("/experiments")
+                        .param("after", "0")
+                        .param("limit", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().string("X-Next-Cursor", "2"));
+
+        verify(experimentService, times(1)).getExperiments("0", 2);
+    }
+
+    @Test
+    void getExperiments_notModified() throws Exception {
+        Experiment experiment = new Experiment("1", "Experiment 1", null, Instant.now(), null, null, 3L);
+        String tag = ExperimentService.pageTag(List.of(experiment));
+
+        when(experimentService.getExperimentsTag(null, 100)).thenReturn(tag);
+
+        mockMvc.perform(get("/experiments")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + tag + "\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + tag + "\""));
+
+        verify(experimentService, times(0)).getExperiments(any(), anyInt());
+    }
+
+    @Test
+    void getExperiments_tagChangesWithVersion() {
+        Experiment experiment = new Experiment("1", "Experiment 1", null, Instant.now(), null, null, 3L);
+        String tag = ExperimentService.pageTag(List.of(experiment));
 
-        verify(experimentService, times(1)).getExperiments();
+        experiment.setVersion(4L);
+
+        Assertions.assertNotEquals(tag, ExperimentService.pageTag(List.of(experiment)));
     }
 
     @Test
     void getExperiments_emptyList() throws Exception {
-        when(experimentService.getExperiments()).thenReturn(List.of());
+        when(experimentService.getExperiments(null, 100)).thenReturn(List.of());
 
         mockMvc.perform(get("/experiments")
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(0)));
 
-        verify(experimentService, times(1)).getExperiments();
+        verify(experimentService, times(1)).getExperiments(null, 100);
+    }
+
+    @Test
+    void getExperimentSummaries_success() throws Exception {
+        ExperimentSummary summary = new ExperimentSummary("1", "Experiment 1", "Description 1", Instant.now(), null, 42);
+
+        when(experimentService.getExperimentSummaries(null, 1)).thenReturn(List.of(summary));
+
+        mockMvc.perform(get("/experiments/_summary")
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is("1")))
+                .andExpect(jsonPath("$[0].name", is("Experiment 1")))
+                .andExpect(jsonPath("$[0].time_points_count", is(42)))
+                .andExpect(jsonPath("$[0].time_points").doesNotExist())
+                .andExpect(header().string("X-Next-Cursor", "1"));
+
+        verify(experimentService, times(1)).getExperimentSummaries(null, 1);
+        verify(experimentService, times(0)).getExperiments(any(), anyInt());
+    }
+
+    @Test
+    void findExperiments_success() throws Exception {
+        Experiment experiment = new Experiment("1", "Run 1", "Description 1", Instant.now(), null, null, null);
+
+        when(experimentService.findExperiments(any(ExperimentQuery.class), eq(null), eq(100))).thenReturn(List.of(experiment));
+
+        mockMvc.perform(get("/experiments/_search")
+                        .param("start_from", "2024-11-28T10:00:00.000+03:00")
+                        .param("name", "Run")
+                        .param("running", "true")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("Run 1")));
+
+        verify(experimentService, times(1)).findExperiments(argThat(query ->
+                query.startFrom().toEpochMilli() == 1732777200000L
+                        && query.startTo() == null
+                        && query.namePrefix().equals("Run")
+                        && query.running()), eq(null), eq(100));
+    }
+
+    @Test
+    void getTimePoints_window() throws Exception {
+        List<ExperimentItem> timePoints = List.of(
+                new ExperimentItem("Point 5", null, Instant.ofEpochMilli(1732777205000L)),
+                new ExperimentItem("Point 6", null, Instant.ofEpochMilli(1732777206000L)));
+
+        when(experimentService.getTimePoints(eq("123"), any(), any(), eq(4L), eq(2)))
+                .thenReturn(Optional.of(new TimePointPage(timePoints, 6)));
+
+        mockMvc.perform(get("/experiments/{id}/time_points", "123")
+                        .param("from", "2024-11-28T10:00:00.000+03:00")
+                        .param("after", "4")
+                        .param("limit", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name", is("Point 5")))
+                .andExpect(header().string("X-Next-Cursor", "6"));
+
+        verify(experimentService, times(1)).getTimePoints(eq("123"), eq(Instant.ofEpochMilli(1732777200000L)),
+                eq(null), eq(4L), eq(2));
+        verify(experimentService, times(0)).getExperimentById("123");
+    }
+
+    @Test
+    void getTimePoints_latestByDefault() throws Exception {
+        when(experimentService.getTimePoints("123", null, null, null, 1000))
+                .thenReturn(Optional.of(new TimePointPage(List.of(), 0)));
+
+        mockMvc.perform(get("/experiments/{id}/time_points", "123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)))
+                .andExpect(header().string("X-Next-Cursor", "0"));
+    }
+
+    @Test
+    void getTimePoints_notFound() throws Exception {
+        when(experimentService.getTimePoints(eq("404"), any(), any(), any(), anyInt())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/experiments/{id}/time_points", "404"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportTimePoints_gzip() throws Exception {
+        when(experimentService.experimentExists("123")).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.getArgument(4, OutputStream.class).write("name,description,date_time\r\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(experimentService).exportTimePoints(eq("123"), any(), any(), eq(TimePointExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/experiments/{id}/time_points/_export", "123")
+                        .param("format", "CSV")
+                        .param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"123.csv.gz\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            Assertions.assertEquals("name,description,date_time\r\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void exportTimePoints_invalidFormat() throws Exception {
+        mockMvc.perform(get("/experiments/{id}/time_points/_export", "123")
+                        .param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+
+        verify(experimentService, times(0)).exportTimePoints(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void exportTimePoints_notFound() throws Exception {
+        when(experimentService.experimentExists("404")).thenReturn(false);
+
+        mockMvc.perform(get("/experiments/{id}/time_points/_export", "404"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void aggregateTimePoints_success() throws Exception {
+        Instant start = Instant.ofEpochMilli(1732777200000L);
+        TimePointInterval interval = new TimePointInterval(start, start.plusSeconds(60), "Point", 3,
+                start.plusSeconds(1), start.plusSeconds(50));
+
+        when(experimentService.aggregateTimePoints("123", start, null, Duration.ofMinutes(1), 200, true))
+                .thenReturn(Optional.of(List.of(interval)));
+
+        mockMvc.perform(get("/experiments/{id}/time_points/_aggregate", "123")
+                        .param("from", "2024-11-28T10:00:00.000+03:00")
+                        .param("interval", "PT1M")
+                        .param("by_name", "true")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("Point")))
+                .andExpect(jsonPath("$[0].count", is(3)));
+    }
+
+    @Test
+    void aggregateTimePoints_invalidInterval() throws Exception {
+        mockMvc.perform(get("/experiments/{id}/time_points/_aggregate", "123")
+                        .param("interval", "every minute"))
+                .andExpect(status().isBadRequest());
+
+        verify(experimentService, times(0)).aggregateTimePoints(any(), any(), any(), any(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void subscribeTimePoints_success() throws Exception {
+        when(experimentService.experimentExists("123")).thenReturn(true);
+        when(timePointBroadcaster.subscribe("123")).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/experiments/{id}/time_points/live", "123")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        verify(timePointBroadcaster, times(1)).subscribe("123");
+    }
+
+    @Test
+    void subscribeTimePoints_notFound() throws Exception {
+        when(experimentService.experimentExists("404")).thenReturn(false);
+
+        mockMvc.perform(get("/experiments/{id}/time_points/live", "404")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+
+        verify(timePointBroadcaster, times(0)).subscribe(any());
     }
 
     @Test
     void updateTimePoints_success() throws Exception {
         // Experiment and new time points setup
         String experimentId = "123";
-        ExperimentItem newTimePoint1 = new ExperimentItem("Point 3", "Description 3", new Date());
-        ExperimentItem newTimePoint2 = new ExperimentItem("Point 4", "Description 4", new Date());
-
-        // Create an existing experiment with two time points
-        Experiment existingExperiment = new Experiment(
-                experimentId,
-                "Test Experiment",
-                "A description of the test experiment",
-                new Date(),
-                new Date(),
-                null
-        );
+        ExperimentItem newTimePoint1 = new ExperimentItem("Point 3", "Description 3", Instant.now());
+        ExperimentItem newTimePoint2 = new ExperimentItem("Point 4", "Description 4", Instant.now());
 
-        // Updated experiment (after adding new time points)
+        // Experiment metadata with only the appended time points
         Experiment updatedExperiment = new Experiment(
                 experimentId,
                 "Test Experiment",
                 "A description of the test experiment",
-                existingExperiment.getDate_time_start(),
-                existingExperiment.getDateTimeFinish(),
+                Instant.now(),
+                Instant.now(),
                 Arrays.asList(
                         newTimePoint1,
                         newTimePoint2
-                )
+                ),
+                null
         );
 
         // Mock service methods
-        when(experimentService.getExperimentById(eq(experimentId))).thenReturn(Optional.of(existingExperiment));
-        when(experimentService.updateExperiment(any(Experiment.class))).thenReturn(updatedExperiment);
+        when(experimentService.addTimePoints(eq(experimentId), anyList())).thenReturn(Optional.of(updatedExperiment));
 
         // Perform the PUT request to update the time points
         mockMvc.perform(put("/experiments/{id}/time_points", experimentId)
@@ -267,16 +628,34 @@ class ExperimentServiceApplicationTests {
                 .andExpect(jsonPath("$.time_points[0].name", is("Point 3")))
                 .andExpect(jsonPath("$.time_points[1].name", is("Point 4")));
 
-        // Verify that the service methods were called as expected
-        verify(experimentService, times(1)).getExperimentById(experimentId);
-        verify(experimentService, times(1)).updateExperiment(any(Experiment.class));
+        // The append must not read or rewrite the whole experiment
+        verify(experimentService, times(1)).addTimePoints(eq(experimentId), argThat(points -> points.size() == 2));
+        verify(experimentService, times(0)).getExperimentById(experimentId);
+        verify(experimentService, times(0)).updateExperiment(any(Experiment.class));
+    }
+
+    @Test
+    void updateTimePoints_smile() throws Exception {
+        byte[] smile = new SmileMapper().writeValueAsBytes(List.of(
+                Map.of("name", "Point 3", "date_time", 1732777200000L),
+                Map.of("name", "Point 4", "date_time", 1732777201000L)));
+
+        when(experimentService.addTimePoints(eq("123"), anyList())).thenReturn(Optional.of(new Experiment()));
+
+        mockMvc.perform(put("/experiments/{id}/time_points", "123")
+                        .contentType("application/x-jackson-smile")
+                        .content(smile))
+                .andExpect(status().isOk());
+
+        verify(experimentService, times(1)).addTimePoints(eq("123"), argThat(points -> points.size() == 2
+                && points.get(1).getDateTime().equals(Instant.ofEpochMilli(1732777201000L))));
     }
 
     @Test
     void updateTimePoints_notFound() throws Exception {
         String experimentId = "123";
 
-        when(experimentService.getExperimentById(eq(experimentId))).thenReturn(Optional.empty());
+        when(experimentService.addTimePoints(eq(experimentId), anyList())).thenReturn(Optional.empty());
 
         mockMvc.perform(put("/experiments/{id}/time_points", experimentId)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -290,19 +669,104 @@ class ExperimentServiceApplicationTests {
 //                .andExpect(result -> result.getResolvedException() instanceof ResponseStatusException)
                 .andExpect(result -> ((ResponseStatusException) result.getResolvedException()).getReason().equals("Experiment not found"));
 
-        verify(experimentService, times(1)).getExperimentById(experimentId);
+        verify(experimentService, times(1)).addTimePoints(eq(experimentId), anyList());
+        verify(experimentService, times(0)).updateExperiment(any(Experiment.class));
+    }
+
+    @Test
+    void patchExperiment_success() throws Exception {
+        String experimentId = "123";
+        Experiment patchedExperiment = new Experiment(
+                experimentId, "Patched Name", "Description", Instant.now(), null, null, 4L
+        );
+
+        when(experimentService.patchExperiment(eq(experimentId), any(), eq(3L))).thenReturn(Optional.of(patchedExperiment));
+
+        mockMvc.perform(patch("/experiments/{id}", experimentId)
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .content("""
+                                {"name": "Patched Name", "date_time_finish": null}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.name", is("Patched Name")))
+                .andExpect(jsonPath("$.version", is(4)));
+
+        // Only the patch is sent down, the experiment is neither loaded nor saved as a whole
+        verify(experimentService, times(1)).patchExperiment(eq(experimentId),
+                argThat(patch -> patch.size() == 2 && patch.get("date_time_finish").isNull()), eq(3L));
+        verify(experimentService, times(0)).getExperimentById(experimentId);
         verify(experimentService, times(0)).updateExperiment(any(Experiment.class));
     }
 
+    @Test
+    void patchExperiment_notFound() throws Exception {
+        when(experimentService.patchExperiment(eq("123"), any(), eq(null))).thenReturn(Optional.empty());
+
+        mockMvc.perform(patch("/experiments/{id}", "123")
+                        .contentType("application/merge-patch+json")
+                        .content("""
+                                {"description": "Patched Description"}
+                                """))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void patchExperiment_ifMatchWithoutVersion() throws Exception {
+        mockMvc.perform(patch("/experiments/{id}", "123")
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, "\"abc\", W/\"3\"")
+                        .content("""
+                                {"description": "Patched Description"}
+                                """))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(experimentService, times(0)).patchExperiment(any(), any(), any());
+    }
+
+    @Test
+    void patchExperiment_ifMatchListWithCurrentVersion() throws Exception {
+        Experiment patchedExperiment = new Experiment("123", "Name", "Patched Description", Instant.now(), null,
+                null, 5L);
+        when(experimentService.getExperimentVersion("123")).thenReturn(Optional.of(4L));
+        when(experimentService.patchExperiment(eq("123"), any(), eq(4L))).thenReturn(Optional.of(patchedExperiment));
+
+        mockMvc.perform(patch("/experiments/{id}", "123")
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, "W/\"5\", \"3\", \"4\"")
+                        .content("""
+                                {"description": "Patched Description"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+    }
+
+    @Test
+    void patchExperiment_ifMatchOfChangedExperiment() throws Exception {
+        when(experimentService.patchExperiment(eq("123"), any(), eq(3L)))
+                .thenThrow(new OptimisticLockingFailureException("Experiment 123 has another version"));
+
+        mockMvc.perform(patch("/experiments/{id}", "123")
+                        .contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .content("""
+                                {"description": "Patched Description"}
+                                """))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     void updateExperiment_success() throws Exception {
         String experimentId = "123";
         Experiment existingExperiment = new Experiment(
-                experimentId, "Old Name", "Old Description", new Date(), new Date(), Collections.emptyList()
+                experimentId, "Old Name", "Old Description", Instant.now(), Instant.now(), Collections.emptyList(),
+                null
         );
 
         Experiment updatedExperiment = new Experiment(
-                experimentId, "Updated Name", "Updated Description", new Date(), new Date(), Collections.emptyList()
+                experimentId, "Updated Name", "Updated Description", Instant.now(), Instant.now(), Collections.emptyList(),
+                null
         );
 
         when(experimentService.getExperimentById(eq(experimentId))).thenReturn(Optional.of(existingExperiment));
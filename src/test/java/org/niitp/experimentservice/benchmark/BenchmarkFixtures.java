@@ -0,0 +1,90 @@
+package org.niitp.experimentservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Data and configuration shared by the benchmarks.
+ */
+final class BenchmarkFixtures {
+
+    private static final long START = 1_732_777_200_000L; // 2024-11-28T10:00:00.000+03:00
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * An object mapper configured like the one of the application by {@code spring.jackson.*}.
+     */
+    static ObjectMapper objectMapper() {
+        return objectMapper(new JsonFactory());
+    }
+
+    /**
+     * An object mapper like {@link #objectMapper()} writing the format of the given factory.
+     */
+    static ObjectMapper objectMapper(JsonFactory factory) {
+        return Jackson2ObjectMapperBuilder.json()
+                .factory(factory)
+                .dateFormat(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"))
+                .timeZone(TimeZone.getTimeZone("Europe/Moscow"))
+                .build();
+    }
+
+    /**
+     * The factory of a wire format accepted by the application: {@code json}, {@code cbor} or {@code smile}.
+     */
+    static JsonFactory factory(String format) {
+        return switch (format) {
+            case "json" -> new JsonFactory();
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+    }
+
+    static Experiment experiment(int timePoints) {
+        return new Experiment(null, "Benchmark experiment", "Experiment with " + timePoints + " time points",
+                Instant.ofEpochMilli(START), null, timePoints(timePoints), null);
+    }
+
+    /**
+     * Time points one second apart; every other one has no description, to exercise {@code NON_EMPTY}.
+     */
+    static List<ExperimentItem> timePoints(int count) {
+        List<ExperimentItem> timePoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            timePoints.add(new ExperimentItem("Point " + i, i % 2 == 0 ? "Description " + i : null,
+                    Instant.ofEpochMilli(START + i * 1000L)));
+        }
+        return timePoints;
+    }
+
+    /**
+     * The commit under test, or {@code null} outside a git checkout.
+     */
+    static String commit() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "HEAD").redirectErrorStream(true).start();
+            String output = new String(git.getInputStream().readAllBytes()).trim();
+            return git.waitFor() == 0 ? output : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.niitp.experimentservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.niitp.experimentservice.model.Experiment;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization and deserialization of whole experiments, including the ISO date codec of every
+ * time point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExperimentJsonBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int timePoints;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Experiment experiment;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        writer = objectMapper.writerFor(Experiment.class);
+        reader = objectMapper.readerFor(Experiment.class);
+        experiment = BenchmarkFixtures.experiment(timePoints);
+        json = writer.writeValueAsBytes(experiment);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(experiment);
+    }
+
+    @Benchmark
+    public Experiment deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
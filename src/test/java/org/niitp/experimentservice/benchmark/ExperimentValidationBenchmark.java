@@ -0,0 +1,47 @@
+package org.niitp.experimentservice.benchmark;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.niitp.experimentservice.model.Experiment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of an experiment, which cascades through {@code @Valid} into every time point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExperimentValidationBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int timePoints;
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private Experiment experiment;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        experiment = BenchmarkFixtures.experiment(timePoints);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Experiment>> validate() {
+        return validator.validate(experiment);
+    }
+}
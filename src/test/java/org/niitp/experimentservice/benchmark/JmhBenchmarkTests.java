@@ -0,0 +1,37 @@
+package org.niitp.experimentservice.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the JMH benchmarks of this package with {@code mvn -Pbenchmarks test -Dtest=JmhBenchmarkTests} and writes
+ * the results to {@code target/benchmarks/jmh.json}, to be compared across commits. JMH command line options can
+ * be passed in {@code jmh.args}, e.g. {@code -Djmh.args="ExperimentJson -p timePoints=1000 -f 1"}.
+ */
+@Tag("benchmark")
+class JmhBenchmarkTests {
+
+    @Test
+    void runBenchmarks() throws Exception {
+        String args = System.getProperty("jmh.args", "").trim();
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args.isEmpty() ? new String[0] : args.split("\\s+"));
+
+        File result = new File("target/benchmarks/jmh.json");
+        result.getParentFile().mkdirs();
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLineOptions);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            options.include(JmhBenchmarkTests.class.getPackageName() + ".*Benchmark");
+        }
+        new Runner(options
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build()).run();
+    }
+}
@@ -0,0 +1,280 @@
+package org.niitp.experimentservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives the whole application over HTTP against a Mongo container and reports latency percentiles and throughput
+ * per scenario and operation to {@code target/benchmarks/load.json}, to be compared across commits.
+ * <p>
+ * Every scenario runs a fixed number of requests from a closed loop of concurrent clients, after a warm-up of the
+ * same size. The sequence of operations and the experiments they target are drawn from a seeded random, so runs
+ * differ only by timing:
+ * <ul>
+ *     <li>{@code mixed}: creates, lists, gets and appends spread over {@link #EXPERIMENTS} experiments</li>
+ *     <li>{@code hot-key}: gets and appends of a single experiment</li>
+ *     <li>{@code large-document}: full and windowed reads of an experiment with {@link #LARGE_TIME_POINTS} time
+ *     points</li>
+ * </ul>
+ */
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Slf4j
+class LoadBenchmarkTests {
+
+    private static final long SEED = 42;
+    private static final int EXPERIMENTS = 100;
+    private static final int TIME_POINTS = 100;
+    private static final int APPENDED_TIME_POINTS = 10;
+    private static final int LARGE_TIME_POINTS = 100_000;
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer();
+
+    @DynamicPropertySource
+    static void setMongoDBProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    private static final ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+    private static HttpClient client;
+    private static ExecutorService clients;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeAll
+    static void setUp() {
+        clients = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void mixedHotKeyAndLargeDocumentLoad() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < EXPERIMENTS; i++) {
+            ids.add(create(BenchmarkFixtures.experiment(TIME_POINTS)));
+        }
+        String large = create(BenchmarkFixtures.experiment(LARGE_TIME_POINTS));
+
+        List<ScenarioResult> results = List.of(
+                run(new Scenario("mixed", 32, 20_000, ids,
+                        Map.of(Operation.CREATE, 10, Operation.LIST, 20, Operation.GET, 40, Operation.APPEND, 30))),
+                run(new Scenario("hot-key", 32, 20_000, List.of(ids.get(0)),
+                        Map.of(Operation.GET, 50, Operation.APPEND, 50))),
+                run(new Scenario("large-document", 8, 400, List.of(large),
+                        Map.of(Operation.GET, 50, Operation.WINDOW, 50))));
+
+        File report = new File("target/benchmarks/load.json");
+        report.getParentFile().mkdirs();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(report, report(results));
+        results.forEach(result -> log.info("{}", result));
+
+        for (ScenarioResult result : results) {
+            assertEquals(0, result.errors(), result.scenario().name() + " had failed requests");
+        }
+    }
+
+    /**
+     * Runs the scenario twice, the first time only to warm up, and measures the second run.
+     */
+    private ScenarioResult run(Scenario scenario) throws InterruptedException {
+        execute(scenario, new Random(SEED - 1));
+        return execute(scenario, new Random(SEED));
+    }
+
+    private ScenarioResult execute(Scenario scenario, Random random) throws InterruptedException {
+        int requests = scenario.requests();
+        Operation[] operations = new Operation[requests];
+        String[] targets = new String[requests];
+        List<Operation> weighted = new ArrayList<>();
+        scenario.weights().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        });
+        weighted.sort(null);
+        for (int i = 0; i < requests; i++) {
+            operations[i] = weighted.get(random.nextInt(weighted.size()));
+            targets[i] = scenario.experimentIds().get(random.nextInt(scenario.experimentIds().size()));
+        }
+
+        long[] latencies = new long[requests];
+        boolean[] failed = new boolean[requests];
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < scenario.concurrency(); worker++) {
+                workers.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        HttpRequest request = request(operations[i], targets[i]);
+                        long sent = System.nanoTime();
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            failed[i] = status >= 400;
+                        } catch (IOException e) {
+                            failed[i] = true;
+                        }
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<Operation, OperationResult> byOperation = new EnumMap<>(Operation.class);
+        for (Operation operation : scenario.weights().keySet()) {
+            byOperation.put(operation, summarize(operations, operation, latencies, failed, seconds));
+        }
+        return new ScenarioResult(scenario, seconds, summarize(operations, null, latencies, failed, seconds),
+                byOperation);
+    }
+
+    /**
+     * Summarizes the requests of one operation, or of all operations for {@code null}.
+     */
+    private static OperationResult summarize(Operation[] operations, Operation operation, long[] latencies,
+                                             boolean[] failed, double seconds) {
+        long[] selected = new long[latencies.length];
+        int count = 0;
+        int errors = 0;
+        for (int i = 0; i < latencies.length; i++) {
+            if (operation == null || operations[i] == operation) {
+                selected[count++] = latencies[i];
+                errors += failed[i] ? 1 : 0;
+            }
+        }
+        long[] sorted = Arrays.copyOf(selected, count);
+        Arrays.sort(sorted);
+        double[] millis = new double[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            // Nearest rank, so p999 of fewer than 1000 requests is their maximum
+            int rank = (int) Math.ceil(PERCENTILES[i] * count);
+            millis[i] = count == 0 ? 0 : sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+        return new OperationResult(count, errors, count / seconds, millis[0], millis[1], millis[2],
+                count == 0 ? 0 : sorted[count - 1] / 1e6);
+    }
+
+    private HttpRequest request(Operation operation, String id) {
+        try {
+            return switch (operation) {
+                case CREATE -> json(HttpRequest.newBuilder(uri("/experiments")), "POST",
+                        objectMapper.writeValueAsBytes(BenchmarkFixtures.experiment(TIME_POINTS)));
+                case LIST -> HttpRequest.newBuilder(uri("/experiments?limit=20")).GET().build();
+                case GET -> HttpRequest.newBuilder(uri("/experiments/" + id)).GET().build();
+                case WINDOW -> HttpRequest.newBuilder(uri("/experiments/" + id + "/time_points?limit=1000")).GET()
+                        .build();
+                case APPEND -> json(HttpRequest.newBuilder(uri("/experiments/" + id + "/time_points")), "PUT",
+                        objectMapper.writeValueAsBytes(BenchmarkFixtures.timePoints(APPENDED_TIME_POINTS)));
+            };
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String create(Object experiment) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(json(HttpRequest.newBuilder(uri("/experiments")), "POST",
+                objectMapper.writeValueAsBytes(experiment)), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(201, response.statusCode());
+        return objectMapper.readTree(response.body()).get("id").asText();
+    }
+
+    private static HttpRequest json(HttpRequest.Builder builder, String method, byte[] body) {
+        return builder.header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static ObjectNode report(List<ScenarioResult> results) {
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("commit", BenchmarkFixtures.commit());
+        report.put("timestamp", Instant.now().toString());
+        report.put("java", Runtime.version().toString());
+        report.put("processors", Runtime.getRuntime().availableProcessors());
+        ArrayNode scenarios = report.putArray("scenarios");
+        for (ScenarioResult result : results) {
+            ObjectNode scenario = scenarios.addObject();
+            scenario.put("name", result.scenario().name());
+            scenario.put("concurrency", result.scenario().concurrency());
+            scenario.put("seconds", result.seconds());
+            scenario.set("total", objectMapper.valueToTree(result.total()));
+            ObjectNode operations = scenario.putObject("operations");
+            result.byOperation().forEach((operation, summary) ->
+                    operations.set(operation.name().toLowerCase(), objectMapper.valueToTree(summary)));
+        }
+        return report;
+    }
+
+    enum Operation {
+        CREATE, LIST, GET, WINDOW, APPEND
+    }
+
+    /**
+     * @param weights relative frequency of every operation in the scenario
+     */
+    record Scenario(String name, int concurrency, int requests, List<String> experimentIds,
+                    Map<Operation, Integer> weights) {
+    }
+
+    record OperationResult(int requests, int errors, double requestsPerSecond, double p50Millis, double p99Millis,
+                           double p999Millis, double maxMillis) {
+    }
+
+    record ScenarioResult(Scenario scenario, double seconds, OperationResult total,
+                          Map<Operation, OperationResult> byOperation) {
+
+        int errors() {
+            return total.errors();
+        }
+
+        @Override
+        public String toString() {
+            return scenario.name() + ": " + total;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.niitp.experimentservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.niitp.experimentservice.model.Experiment;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Writes the size in bytes of experiments in every wire format to {@code target/benchmarks/payload-sizes.json},
+ * next to the timings of {@link TimePointFormatBenchmark}.
+ */
+@Tag("benchmark")
+class PayloadSizeReportTests {
+
+    private static final List<String> FORMATS = List.of("json", "cbor", "smile");
+
+    @Test
+    void reportPayloadSizes() throws Exception {
+        ObjectMapper json = BenchmarkFixtures.objectMapper();
+        ObjectNode report = json.createObjectNode();
+        for (int timePoints : new int[]{100, 10_000, 1_000_000}) {
+            Experiment experiment = BenchmarkFixtures.experiment(timePoints);
+            ObjectNode sizes = report.putObject(String.valueOf(timePoints));
+            for (String format : FORMATS) {
+                ObjectMapper objectMapper = BenchmarkFixtures.objectMapper(BenchmarkFixtures.factory(format));
+                sizes.put(format, objectMapper.writeValueAsBytes(experiment).length);
+            }
+            Assertions.assertTrue(sizes.get("cbor").asLong() < sizes.get("json").asLong());
+            Assertions.assertTrue(sizes.get("smile").asLong() < sizes.get("json").asLong());
+        }
+
+        File result = new File("target/benchmarks/payload-sizes.json");
+        result.getParentFile().mkdirs();
+        json.writerWithDefaultPrettyPrinter().writeValue(result, report);
+    }
+}
@@ -0,0 +1,177 @@
+package org.niitp.experimentservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the time from launching the application to its first successful {@code GET /experiments/{id}} and
+ * writes it to {@code target/benchmarks/startup.json}, to be compared across commits. The application is the one
+ * built into {@code target/startup} by {@code ./mvnw -Pstartup package}, launched the way the startup-optimized
+ * image runs it against a Mongo container:
+ * <ul>
+ *     <li>{@code jar}: the plain JVM, without AOT or class data sharing</li>
+ *     <li>{@code aot}: with the Spring AOT generated bean definitions</li>
+ *     <li>{@code cds-aot}: with AOT and a class data sharing archive recorded by a training run beforehand</li>
+ * </ul>
+ * Every variant is launched {@link #LAUNCHES} times after one discarded launch that warms up the file system cache.
+ */
+@Tag("benchmark")
+@Testcontainers
+@Slf4j
+class StartupBenchmarkTests {
+
+    private static final int LAUNCHES = 5;
+    private static final String EXPERIMENT_ID = "startup";
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final Path STARTUP = Path.of("target/startup");
+
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer();
+
+    private final ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(100)).build();
+
+    @Test
+    void timeToFirstRead() throws Exception {
+        Path jar = applicationJar();
+        assumeTrue(jar != null, "Build the application with ./mvnw -Pstartup package first");
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getReplicaSetUrl())) {
+            mongoClient.getDatabase("test").getCollection("experiment")
+                    .insertOne(new Document("_id", EXPERIMENT_ID).append("name", "Startup experiment"));
+        }
+
+        Path archive = STARTUP.resolve("app.jsa");
+        Files.deleteIfExists(archive);
+        Process training = launch(jar, "training", "-XX:ArchiveClassesAtExit=" + archive,
+                "-Dspring.aot.enabled=true", "-Dexperiments.startup.training-run=true");
+        assertEquals(0, training.waitFor(), "Training run failed, see target/benchmarks/startup-training.log");
+
+        List<Variant> variants = List.of(
+                new Variant("jar"),
+                new Variant("aot", "-Dspring.aot.enabled=true"),
+                new Variant("cds-aot", "-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true"));
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("commit", BenchmarkFixtures.commit());
+        report.put("timestamp", Instant.now().toString());
+        report.put("java", Runtime.version().toString());
+        report.put("processors", Runtime.getRuntime().availableProcessors());
+        ArrayNode results = report.putArray("variants");
+        for (Variant variant : variants) {
+            timeToFirstRead(jar, variant);
+            long[] millis = new long[LAUNCHES];
+            for (int i = 0; i < LAUNCHES; i++) {
+                millis[i] = timeToFirstRead(jar, variant);
+            }
+            Arrays.sort(millis);
+            ObjectNode result = results.addObject();
+            result.put("name", variant.name());
+            result.put("minMillis", millis[0]);
+            result.put("medianMillis", millis[LAUNCHES / 2]);
+            result.put("maxMillis", millis[LAUNCHES - 1]);
+            log.info("{}: {} ms", variant.name(), Arrays.toString(millis));
+        }
+
+        File file = new File("target/benchmarks/startup.json");
+        file.getParentFile().mkdirs();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+    }
+
+    /**
+     * Launches the application and returns the milliseconds until it served the experiment, then stops it.
+     */
+    private long timeToFirstRead(Path jar, Variant variant) throws Exception {
+        int port = freePort();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/experiments/"
+                + EXPERIMENT_ID)).timeout(TIMEOUT).GET().build();
+        long start = System.nanoTime();
+        List<String> options = new ArrayList<>(List.of(variant.jvmOptions()));
+        options.add("-Dserver.port=" + port);
+        Process process = launch(jar, variant.name(), options.toArray(String[]::new));
+        try {
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant.name() + " exited with " + process.exitValue()
+                            + ", see target/benchmarks/startup-" + variant.name() + ".log");
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(variant.name() + " did not serve the experiment within " + TIMEOUT);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private Process launch(Path jar, String name, String... jvmOptions) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(jvmOptions));
+        command.add("-jar");
+        command.add(jar.toString());
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File("target/benchmarks/startup-" + name + ".log"));
+        // Like the image, which runs the prod profile it was AOT processed for
+        builder.environment().put("SPRING_PROFILES_ACTIVE", "prod");
+        builder.environment().put("SPRING_DATA_MONGODB_URI", mongoDBContainer.getReplicaSetUrl());
+        new File("target/benchmarks").mkdirs();
+        return builder.start();
+    }
+
+    /**
+     * The application jar of the {@code startup} profile, or {@code null} if it was not built.
+     */
+    private static Path applicationJar() throws IOException {
+        if (!Files.isDirectory(STARTUP)) {
+            return null;
+        }
+        try (Stream<Path> files = Files.list(STARTUP)) {
+            return files.filter(file -> file.toString().endsWith(".jar")).findFirst().orElse(null);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    record Variant(String name, String... jvmOptions) {
+    }
+}
@@ -0,0 +1,79 @@
+package org.niitp.experimentservice.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.bson.Document;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU side of {@code PUT /experiments/{id}/time_points}: parsing the body, validating every time point and
+ * mapping the {@code $push}/{@code $each} update to the BSON document sent to Mongo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimePointAppendBenchmark {
+
+    @Param({"1", "10", "1000"})
+    public int batchSize;
+
+    private ObjectReader reader;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UpdateMapper updateMapper;
+    private MongoPersistentEntity<?> experimentEntity;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        reader = objectMapper.readerFor(new TypeReference<List<ExperimentItem>>() {
+        });
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        updateMapper = new UpdateMapper(converter);
+        experimentEntity = mappingContext.getRequiredPersistentEntity(Experiment.class);
+
+        body = objectMapper.writeValueAsBytes(BenchmarkFixtures.timePoints(batchSize));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Document append() throws IOException {
+        List<ExperimentItem> timePoints = reader.readValue(body);
+        for (ExperimentItem timePoint : timePoints) {
+            if (!validator.validate(timePoint).isEmpty()) {
+                throw new IllegalStateException("Invalid time point " + timePoint);
+            }
+        }
+        Update update = new Update().push("timePoints").each(timePoints.toArray());
+        return updateMapper.getMappedObject(update.getUpdateObject(), experimentEntity);
+    }
+}
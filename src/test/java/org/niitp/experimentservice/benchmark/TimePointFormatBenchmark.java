@@ -0,0 +1,58 @@
+package org.niitp.experimentservice.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of time point batches in every wire format accepted by the application. JSON
+ * writes dates as ISO strings, CBOR and Smile as epoch milliseconds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TimePointFormatBenchmark {
+
+    private static final TypeReference<List<ExperimentItem>> TIME_POINTS = new TypeReference<>() {
+    };
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"100", "10000", "1000000"})
+    public int timePoints;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<ExperimentItem> items;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper(BenchmarkFixtures.factory(format));
+        writer = objectMapper.writerFor(TIME_POINTS);
+        reader = objectMapper.readerFor(TIME_POINTS);
+        items = BenchmarkFixtures.timePoints(timePoints);
+        payload = writer.writeValueAsBytes(items);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(items);
+    }
+
+    @Benchmark
+    public List<ExperimentItem> deserialize() throws IOException {
+        return reader.readValue(payload);
+    }
+}
@@ -0,0 +1,177 @@
+package org.niitp.experimentservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.niitp.experimentservice.ExperimentServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the application with {@code experiments.virtual-threads.enabled} off and on under many concurrent
+ * {@code GET /experiments/{id}/time_points} requests, while a {@code failCommand} fail point holds every query of
+ * the application on the server for {@link #MONGO_LATENCY_MS}. With platform threads the Tomcat pool of
+ * {@link #TOMCAT_THREADS} bounds the throughput to about {@code TOMCAT_THREADS / MONGO_LATENCY_MS}; with virtual
+ * threads only the Mongo connection pool of {@link #MONGO_POOL_SIZE} does. Results are written to
+ * {@code target/benchmarks/virtual-threads.json}.
+ */
+@Tag("benchmark")
+@Testcontainers
+@Slf4j
+class VirtualThreadBenchmarkTests {
+
+    private static final String EXPERIMENT_ID = "virtual-threads";
+    private static final String APP_NAME = "virtual-thread-benchmark";
+    private static final int CLIENTS = 1_000;
+    private static final int REQUESTS = 10_000;
+    private static final int TOMCAT_THREADS = 200; // server.tomcat.threads.max default
+    private static final int MONGO_POOL_SIZE = 1_000;
+    private static final long MONGO_LATENCY_MS = 50;
+
+    // failCommand with blockConnection needs 4.2.9 or later, and test commands enabled
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:5.0"))
+            .withCommand("--replSet", "docker-rs", "--setParameter", "enableTestCommands=1");
+
+    private static ExecutorService clients;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void setUp() {
+        try (MongoClient mongoClient = MongoClients.create(mongoDBContainer.getReplicaSetUrl())) {
+            mongoClient.getDatabase("test").getCollection("experiment").insertOne(new Document("_id", EXPERIMENT_ID)
+                    .append("name", "Virtual thread experiment").append("version", 0L));
+            // Only the connections of the application wait, by their application name
+            mongoClient.getDatabase("admin").runCommand(new Document("configureFailPoint", "failCommand")
+                    .append("mode", "alwaysOn")
+                    .append("data", new Document("failCommands", List.of("find", "aggregate"))
+                            .append("blockConnection", true)
+                            .append("blockTimeMS", MONGO_LATENCY_MS)
+                            .append("appName", APP_NAME)));
+        }
+        clients = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        clients.shutdownNow();
+    }
+
+    @Test
+    void platformThreadsVersusVirtualThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("commit", BenchmarkFixtures.commit());
+        report.put("timestamp", Instant.now().toString());
+        report.put("processors", Runtime.getRuntime().availableProcessors());
+        ArrayNode results = report.putArray("results");
+        results.addPOJO(platform);
+        results.addPOJO(virtual);
+        File file = new File("target/benchmarks/virtual-threads.json");
+        file.getParentFile().mkdirs();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+        log.info("{}", platform);
+        log.info("{}", virtual);
+
+        assertEquals(0, platform.errors(), "Requests failed with platform threads");
+        assertEquals(0, virtual.errors(), "Requests failed with virtual threads");
+        // The fail point makes a request take at least MONGO_LATENCY_MS, so the Tomcat pool caps platform threads
+        double platformBound = TOMCAT_THREADS * 1000.0 / MONGO_LATENCY_MS;
+        assertTrue(platform.requestsPerSecond() <= platformBound * 1.1,
+                "Platform threads exceeded the Tomcat pool bound of " + platformBound + " requests/s: " + platform);
+        assertTrue(virtual.requestsPerSecond() > platform.requestsPerSecond() * 2,
+                "Virtual threads did not lift the Tomcat pool bound: " + virtual + " versus " + platform);
+    }
+
+    /**
+     * Starts the application with virtual threads off or on, runs the requests twice and measures the second run.
+     */
+    private static Result run(boolean virtualThreads) throws InterruptedException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExperimentServiceApplication.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "spring.docker.compose.enabled=false",
+                        "spring.data.mongodb.uri=" + mongoDBContainer.getReplicaSetUrl()
+                                + "?maxPoolSize=" + MONGO_POOL_SIZE + "&appName=" + APP_NAME,
+                        "experiments.virtual-threads.enabled=" + virtualThreads)
+                .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/experiments/" + EXPERIMENT_ID + "/time_points");
+            execute(uri);
+            return execute(uri).named(virtualThreads ? "virtual" : "platform-" + TOMCAT_THREADS);
+        }
+    }
+
+    private static Result execute(URI uri) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        long[] latencies = new long[REQUESTS];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>(CLIENTS);
+        long start = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int call = next.getAndIncrement(); call < REQUESTS; call = next.getAndIncrement()) {
+                    long sent = System.nanoTime();
+                    try {
+                        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[call] = System.nanoTime() - sent;
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        return new Result(null, REQUESTS, errors.get(), REQUESTS / seconds,
+                latencies[REQUESTS / 2] / 1e6, latencies[(int) (REQUESTS * 0.99)] / 1e6);
+    }
+
+    record Result(String threads, int requests, int errors, double requestsPerSecond, double p50Millis,
+                  double p99Millis) {
+
+        Result named(String threads) {
+            return new Result(threads, requests, errors, requestsPerSecond, p50Millis, p99Millis);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.niitp.experimentservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.niitp.experimentservice.config.AdmissionControlFilter.Budget.*;
+
+class AdmissionControlFilterTests {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AdmissionProperties.Budget budget = new AdmissionProperties.Budget(1, 1, 4, Duration.ofSeconds(1));
+        filter = new AdmissionControlFilter(new AdmissionProperties(true, Duration.ofMillis(1500), 0.5,
+                budget, budget, budget), new ObjectMapper(), meterRegistry);
+    }
+
+    @Test
+    void classifiesRoutesIntoBudgets() {
+        assertEquals(SCAN, AdmissionControlFilter.budget("GET", "/experiments"));
+        assertEquals(SCAN, AdmissionControlFilter.budget("GET", "/experiments/_search"));
+        assertEquals(SCAN, AdmissionControlFilter.budget("GET", "/experiments/1/time_points/_export"));
+        assertEquals(SCAN, AdmissionControlFilter.budget("GET", "/experiments/1/time_points/_aggregate"));
+        assertEquals(READ, AdmissionControlFilter.budget("GET", "/experiments/1"));
+        assertEquals(READ, AdmissionControlFilter.budget("GET", "/experiments/1/time_points"));
+        assertEquals(WRITE, AdmissionControlFilter.budget("POST", "/experiments"));
+        assertEquals(WRITE, AdmissionControlFilter.budget("POST", "/experiments/_import"));
+        assertEquals(WRITE, AdmissionControlFilter.budget("PUT", "/experiments/1/time_points"));
+        assertEquals(WRITE, AdmissionControlFilter.budget("PATCH", "/experiments/1"));
+        assertNull(AdmissionControlFilter.budget("GET", "/experiments/1/time_points/live"));
+        assertNull(AdmissionControlFilter.budget("GET", "/actuator/prometheus"));
+        assertNull(AdmissionControlFilter.budget("OPTIONS", "/experiments"));
+    }
+
+    @Test
+    void rejectsOverTheLimitWithoutQueueing() throws Exception {
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockHttpServletResponse read = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/experiments"), new MockHttpServletResponse(),
+                (req, res) -> {
+                    // The scan budget is exhausted while the first scan is in progress, the read budget is not
+                    filter.doFilter(new MockHttpServletRequest("GET", "/experiments/_search"), rejected,
+                            (innerReq, innerRes) -> fail("Request over the limit was admitted"));
+                    filter.doFilter(new MockHttpServletRequest("GET", "/experiments/1"), read,
+                            (innerReq, innerRes) -> innerRes.getWriter().write("{}"));
+                });
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("2", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("uri=/experiments/_search"));
+        assertEquals("{}", read.getContentAsString());
+        assertEquals(1, meterRegistry.get("experiment.admission.rejected").tag("budget", "scan").functionCounter()
+                .count());
+        assertEquals(0, meterRegistry.get("experiment.admission.in.flight").tag("budget", "scan").gauge().value());
+    }
+
+    @Test
+    void adaptsTheLimitToLatencyAndErrors() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new AdmissionProperties.Budget(4, 2, 6,
+                Duration.ofMillis(100)), 0.5);
+
+        // Fast requests grow the limit only while it is at least half used
+        assertTrue(limiter.tryAcquire());
+        limiter.release(Duration.ofMillis(10).toNanos(), false);
+        assertEquals(4, limiter.limit());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        limiter.release(Duration.ofMillis(10).toNanos(), false);
+        limiter.release(Duration.ofMillis(10).toNanos(), false);
+        limiter.release(Duration.ofMillis(10).toNanos(), false);
+        assertEquals(6, limiter.limit());
+
+        // Slow and failed requests back off down to the minimum
+        limiter.release(Duration.ofMillis(200).toNanos(), false);
+        assertEquals(3, limiter.limit());
+        assertTrue(limiter.tryAcquire());
+        limiter.release(Duration.ofMillis(10).toNanos(), true);
+        assertEquals(2, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+        assertEquals(1, limiter.rejected());
+    }
+}
@@ -0,0 +1,70 @@
+package org.niitp.experimentservice.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadSizeFilterTests {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PayloadSizeFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new PayloadSizeFilter(meterRegistry);
+    }
+
+    @Test
+    void recordsBytesReadAndWritten() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/experiments/1/time_points");
+        request.setContent("[{\"name\": \"Point 1\"}]".getBytes(StandardCharsets.UTF_8));
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/experiments/{id}/time_points");
+            req.getInputStream().readAllBytes();
+            res.getOutputStream().write(new byte[42]);
+        });
+
+        DistributionSummary requestSize = meterRegistry.get("http.server.request.body.size")
+                .tag("uri", "/experiments/{id}/time_points").summary();
+        DistributionSummary responseSize = meterRegistry.get("http.server.response.body.size")
+                .tag("method", "PUT").summary();
+        assertEquals(21, requestSize.totalAmount());
+        assertEquals(42, responseSize.totalAmount());
+    }
+
+    @Test
+    void recordsBytesOfTheWriterInItsEncoding() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/experiments"), response, (req, res) -> {
+            res.getWriter().write("Точка ");
+            res.getWriter().print("\uD83D");
+            res.getWriter().print("\uDE00");
+        });
+
+        assertEquals(response.getContentAsByteArray().length, meterRegistry.get("http.server.response.body.size")
+                .summary().totalAmount());
+        assertEquals(15, meterRegistry.get("http.server.response.body.size").summary().totalAmount());
+    }
+
+    @Test
+    void skipsRequestsWithoutBody() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/experiments"), new MockHttpServletResponse(),
+                (req, res) -> res.getOutputStream().write(new byte[2]));
+
+        assertNull(meterRegistry.find("http.server.request.body.size").summary());
+        assertEquals(2, meterRegistry.get("http.server.response.body.size").tag("uri", "UNKNOWN").summary()
+                .totalAmount());
+    }
+}
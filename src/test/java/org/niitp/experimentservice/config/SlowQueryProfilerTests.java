@@ -0,0 +1,132 @@
+package org.niitp.experimentservice.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryProfilerTests {
+
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+    private static final String EXPLAIN = """
+            {"queryPlanner": {"winningPlan": {"stage": "FETCH", "inputStage": {"stage": "COLLSCAN"}}},
+             "executionStats": {"executionTimeMillis": 120, "nReturned": 1, "totalDocsExamined": 50000,
+                                "totalKeysExamined": 0}}
+            """;
+
+    private final List<BsonDocument> explained = new CopyOnWriteArrayList<>();
+    private SlowQueryProfiler profiler;
+    private int requestId;
+
+    @BeforeEach
+    void setUp() {
+        profiler = new SlowQueryProfiler(new SlowQueryProperties(true, Duration.ofMillis(100), 1, 10),
+                (database, command) -> {
+                    explained.add(command);
+                    return Document.parse(EXPLAIN);
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        profiler.destroy();
+    }
+
+    @Test
+    void recordsSlowCommandsByShapeAndExplainsTheFirst() throws Exception {
+        run("""
+                {"find": "experiment", "filter": {"_id": "1", "timePoints.dateTime": {"$gte": {"$date": 0}}},
+                 "sort": {"_id": 1}, "$db": "test", "lsid": {"id": 1}}
+                """, 150, "{\"ok\": 1, \"cursor\": {\"firstBatch\": [{}], \"id\": 0}}");
+        run("""
+                {"find": "experiment", "filter": {"_id": "2", "timePoints.dateTime": {"$gte": {"$date": 1}}},
+                 "sort": {"_id": 1}, "$db": "test"}
+                """, 250, "{\"ok\": 1, \"cursor\": {\"firstBatch\": [], \"id\": 0}}");
+        run("""
+                {"find": "experiment", "filter": {"_id": "3"}, "$db": "test"}
+                """, 5, "{\"ok\": 1, \"cursor\": {\"firstBatch\": [{}], \"id\": 0}}");
+
+        SlowQueryProfiler.SlowQuery query = awaitExplain();
+
+        assertEquals(1, profiler.report().queries().size());
+        assertEquals("{\"filter\": {\"_id\": \"?\", \"timePoints.dateTime\": {\"$gte\": \"?\"}}, \"sort\": {\"_id\": 1}}",
+                query.shape());
+        assertEquals(2, query.count());
+        assertEquals(250.0, query.maxMillis());
+        assertEquals(0L, query.lastReturned());
+
+        // Only the first occurrence is explained, as a command without session fields
+        assertEquals(1, explained.size());
+        assertEquals(BsonDocument.parse("""
+                {"find": "experiment", "filter": {"_id": "1", "timePoints.dateTime": {"$gte": {"$date": 0}}},
+                 "sort": {"_id": 1}}
+                """), explained.get(0).getDocument("explain"));
+        SlowQueryProfiler.Explain explain = query.explains().get(0);
+        assertEquals("FETCH <- COLLSCAN", explain.plan());
+        assertTrue(explain.collectionScan());
+        assertEquals(50000L, explain.docsExamined());
+        assertEquals(1L, explain.returned());
+    }
+
+    @Test
+    void explainsUpdatesAsFindWithoutPayload() throws Exception {
+        run("""
+                {"update": "experiment", "updates": [{"q": {"_id": "1"},
+                 "u": {"$push": {"timePoints": {"$each": [{"name": "Point"}]}}}}], "$db": "test"}
+                """, 150, "{\"ok\": 1, \"n\": 1}");
+
+        SlowQueryProfiler.SlowQuery query = awaitExplain();
+
+        assertEquals("update", query.command());
+        assertEquals("{\"filter\": {\"_id\": \"?\"}}", query.shape());
+        assertEquals(1L, query.lastReturned());
+        assertEquals(BsonDocument.parse("{\"find\": \"experiment\", \"filter\": {\"_id\": \"1\"}}"),
+                explained.get(0).getDocument("explain"));
+    }
+
+    @Test
+    void countsShapesBeyondTheLimitAsDropped() {
+        for (int i = 0; i < 12; i++) {
+            run("{\"insert\": \"experiment" + i + "\", \"documents\": [], \"$db\": \"test\"}", 150,
+                    "{\"ok\": 1, \"n\": 0}");
+        }
+
+        assertEquals(10, profiler.report().queries().size());
+        assertEquals(2, profiler.report().dropped());
+        assertTrue(explained.isEmpty());
+    }
+
+    private void run(String command, long millis, String response) {
+        BsonDocument document = BsonDocument.parse(command);
+        String name = document.getFirstKey();
+        profiler.commandStarted(new CommandStartedEvent(null, ++requestId, CONNECTION, "test", name, document));
+        profiler.commandSucceeded(new CommandSucceededEvent(null, requestId, CONNECTION, name,
+                BsonDocument.parse(response), Duration.ofMillis(millis).toNanos()));
+    }
+
+    private SlowQueryProfiler.SlowQuery awaitExplain() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            SlowQueryProfiler.SlowQuery query = profiler.report().queries().get(0);
+            if (!query.explains().isEmpty()) {
+                return query;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Slow query was not explained");
+    }
+}
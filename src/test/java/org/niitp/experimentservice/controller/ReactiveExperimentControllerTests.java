@@ -0,0 +1,87 @@
+package org.niitp.experimentservice.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.service.ReactiveExperimentService;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveExperimentControllerTests {
+
+    private ReactiveExperimentService experimentService;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        experimentService = mock(ReactiveExperimentService.class);
+        webTestClient = WebTestClient.bindToController(new ReactiveExperimentController(experimentService))
+                .controllerAdvice(new ReactiveGlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void getExperiments_streamsNdjson() {
+        when(experimentService.streamExperiments(null)).thenReturn(Flux.just(
+                new Experiment("1", "Experiment 1", null, Instant.now(), null, null, null),
+                new Experiment("2", "Experiment 2", null, Instant.now(), null, null, null)));
+
+        webTestClient.get().uri("/experiments")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Experiment.class).hasSize(2);
+    }
+
+    @Test
+    void getExperimentById_notFound() {
+        when(experimentService.getExperimentById("123")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/experiments/{id}", "123")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void addTimePoints_success() {
+        Experiment experiment = new Experiment("123", "Test Experiment", null, Instant.now(), null,
+                List.of(new ExperimentItem("Point 1", null, Instant.now())), null);
+        when(experimentService.addTimePoints(eq("123"), anyList())).thenReturn(Mono.just(experiment));
+
+        webTestClient.put().uri("/experiments/{id}/time_points", "123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        [{"name": "Point 1", "date_time": "2024-11-28T12:00:00.000+03:00"}]
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.time_points.length()").isEqualTo(1);
+    }
+
+    @Test
+    void addTimePoints_validationFailed() {
+        webTestClient.put().uri("/experiments/{id}/time_points", "123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        [{"name": "", "date_time": "2024-11-28T12:00:00.000+03:00"}]
+                        """)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Validation Failed");
+
+        verify(experimentService, never()).addTimePoints(any(), anyList());
+    }
+}
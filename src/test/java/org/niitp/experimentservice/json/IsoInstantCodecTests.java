@@ -0,0 +1,84 @@
+package org.niitp.experimentservice.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsoInstantCodecTests {
+
+    private static final long YEAR_1900 = -2_208_988_800_000L;
+    private static final long YEAR_2100 = 4_102_444_800_000L;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Europe/Moscow", "UTC", "America/New_York", "Asia/Kolkata", "Asia/Kathmandu",
+            "Australia/Lord_Howe", "Africa/Monrovia"})
+    void format_matchesSimpleDateFormat(String zone) {
+        SimpleDateFormat expected = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+        expected.setTimeZone(TimeZone.getTimeZone(zone));
+        Random random = new Random(zone.hashCode());
+
+        for (int i = 0; i < 100_000; i++) {
+            long millis = YEAR_1900 + (long) (random.nextDouble() * (YEAR_2100 - YEAR_1900));
+            assertEquals(expected.format(new Date(millis)),
+                    IsoInstantCodec.format(Instant.ofEpochMilli(millis), ZoneId.of(zone).getRules()));
+        }
+    }
+
+    @Test
+    void format_truncatesToMillis() {
+        Instant instant = Instant.parse("2024-11-28T07:00:00.123999Z");
+
+        assertEquals("2024-11-28T10:00:00.123+03:00",
+                IsoInstantCodec.format(instant, ZoneId.of("Europe/Moscow").getRules()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2024-11-28T10:00:00.000+03:00", "2024-11-28T07:00:00Z", "2024-11-28T07:00:00.000Z",
+            "2024-11-28T10:00+03:00", "2024-11-28T10:00:00+0300", "2024-11-28T10:00:00+03",
+            "2024-11-28T02:00:00.000000000-05:00"})
+    void parse_acceptsOffsetDateTimes(String text) {
+        assertEquals(Instant.ofEpochMilli(1_732_777_200_000L), IsoInstantCodec.parse(text));
+    }
+
+    @Test
+    void parse_keepsFractionDigits() {
+        assertEquals(Instant.parse("2024-11-28T07:00:00.123456789Z"),
+                IsoInstantCodec.parse("2024-11-28T10:00:00.123456789+03:00"));
+        assertEquals(Instant.parse("2024-11-28T07:00:00.100Z"), IsoInstantCodec.parse("2024-11-28T07:00:00.1Z"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "2024-11-28", "2024-11-28T10:00:00.000", "2024-02-30T10:00:00Z",
+            "2024-11-28T24:00:00Z", "2024-11-28 10:00:00Z", "not a date"})
+    void parse_rejectsInvalidText(String text) {
+        assertThrows(DateTimeParseException.class, () -> IsoInstantCodec.parse(text));
+    }
+
+    @Test
+    void jackson_roundTripsTimePoint() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .timeZone(TimeZone.getTimeZone("Europe/Moscow"))
+                .build();
+        String json = "{\"name\":\"Point 1\",\"date_time\":\"2024-11-28T10:00:00.000+03:00\"}";
+
+        ExperimentItem item = objectMapper.readValue(json, ExperimentItem.class);
+
+        assertEquals(Instant.ofEpochMilli(1_732_777_200_000L), item.getDateTime());
+        assertEquals(json, objectMapper.writeValueAsString(item));
+        assertEquals(item, objectMapper.readValue("{\"name\":\"Point 1\",\"date_time\":1732777200000}",
+                ExperimentItem.class));
+    }
+}
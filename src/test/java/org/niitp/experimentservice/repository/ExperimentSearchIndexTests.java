@@ -0,0 +1,109 @@
+package org.niitp.experimentservice.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks with explain plans that every supported experiment search is answered from an index.
+ */
+@DataMongoTest(properties = "spring.data.mongodb.auto-index-creation=true")
+@Testcontainers
+class ExperimentSearchIndexTests {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    private static final Instant HOUR_AGO = NOW.minus(1, ChronoUnit.HOURS);
+
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer();
+
+    @DynamicPropertySource
+    static void setMongoDBProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ExperimentRepository experimentRepository;
+
+    @BeforeEach
+    void setUp() {
+        experimentRepository.deleteAll();
+        List<Experiment> experiments = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Instant start = NOW.minus(i, ChronoUnit.MINUTES);
+            experiments.add(new Experiment(null, "Run " + i, null, start, i % 2 == 0 ? null : NOW, null, null));
+        }
+        experimentRepository.saveAll(experiments);
+    }
+
+    static Stream<ExperimentQuery> supportedQueries() {
+        return Stream.of(
+                new ExperimentQuery(HOUR_AGO, null, null, null, null, null),
+                new ExperimentQuery(HOUR_AGO, NOW, null, null, null, null),
+                new ExperimentQuery(null, null, HOUR_AGO, NOW, null, null),
+                new ExperimentQuery(null, null, null, null, "Run 1", null),
+                new ExperimentQuery(null, null, null, null, null, true),
+                new ExperimentQuery(null, null, null, null, null, false),
+                new ExperimentQuery(HOUR_AGO, null, null, null, "Run", true)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("supportedQueries")
+    void search_usesIndex(ExperimentQuery experimentQuery) {
+        Query query = ExperimentRepositoryCustomImpl.searchQuery(experimentQuery, null, 100);
+        QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        Document explain = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Experiment.class))
+                .find(queryMapper.getMappedObject(query.getQueryObject(),
+                        mongoTemplate.getConverter().getMappingContext().getPersistentEntity(Experiment.class)))
+                .sort(query.getSortObject())
+                .limit(query.getLimit())
+                .explain();
+
+        String winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertFalse(winningPlan.contains("COLLSCAN"), winningPlan);
+    }
+
+    @ParameterizedTest
+    @MethodSource("supportedQueries")
+    void search_matchesFilter(ExperimentQuery experimentQuery) {
+        List<Experiment> experiments = experimentRepository.search(experimentQuery, null, 1000);
+
+        long expected = experimentRepository.findAll().stream().filter(experiment ->
+                (experimentQuery.startFrom() == null || !experiment.getDate_time_start().isBefore(experimentQuery.startFrom()))
+                        && (experimentQuery.startTo() == null || experiment.getDate_time_start().isBefore(experimentQuery.startTo()))
+                        && (experimentQuery.finishFrom() == null || experiment.getDateTimeFinish() != null
+                        && !experiment.getDateTimeFinish().isBefore(experimentQuery.finishFrom()))
+                        && (experimentQuery.finishTo() == null || experiment.getDateTimeFinish() != null
+                        && experiment.getDateTimeFinish().isBefore(experimentQuery.finishTo()))
+                        && (experimentQuery.namePrefix() == null || experiment.getName().startsWith(experimentQuery.namePrefix()))
+                        && (experimentQuery.running() == null || experimentQuery.running() == (experiment.getDateTimeFinish() == null))
+        ).count();
+        assertEquals(expected, experiments.size());
+    }
+}
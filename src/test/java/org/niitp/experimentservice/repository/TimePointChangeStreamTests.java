@@ -0,0 +1,57 @@
+package org.niitp.experimentservice.repository;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.niitp.experimentservice.config.TimePointStorageProperties;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class TimePointChangeStreamTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void start_failsFastWithoutChangeStreams() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        ChangeStreamIterable<Document> changeStream = mock(ChangeStreamIterable.class);
+        when(mongoTemplate.getCollectionName(any())).thenReturn("experiment");
+        when(mongoTemplate.getCollection("experiment")).thenReturn(collection);
+        when(collection.watch(anyList())).thenReturn(changeStream);
+        when(changeStream.maxAwaitTime(anyLong(), any(TimeUnit.class))).thenReturn(changeStream);
+        // What a standalone server answers
+        when(changeStream.cursor()).thenThrow(new MongoCommandException(new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(40573))
+                .append("errmsg", new BsonString("The $changeStream stage is only supported on replica sets")),
+                new ServerAddress()));
+
+        TimePointChangeStream timePointChangeStream = new TimePointChangeStream(mongoTemplate,
+                TimePointStorageProperties.Storage.EMBEDDED, (experimentId, timePoints) -> {
+        });
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertThrows(IllegalStateException.class, timePointChangeStream::start);
+                assertThrows(IllegalStateException.class, timePointChangeStream::start);
+            });
+            // The second start failed without trying again
+            verify(changeStream, times(1)).cursor();
+        } finally {
+            timePointChangeStream.close();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.niitp.experimentservice.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.niitp.experimentservice.config.TimePointStorageProperties;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.TimePointBucket;
+import org.niitp.experimentservice.model.TimePointInterval;
+import org.niitp.experimentservice.model.TimePointPage;
+import org.niitp.experimentservice.model.TimePointRange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Checks that both time point storages return the same windows, exports and aggregates of an experiment with ten time
+ * points one second apart. The bucketed storage keeps them in buckets of three, so that windows start and end
+ * inside buckets.
+ */
+@DataMongoTest
+@Testcontainers
+class TimePointWindowTests {
+
+    private static final long START = 1_732_777_200_000L;
+
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer();
+
+    @DynamicPropertySource
+    static void setMongoDBProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ExperimentRepository experimentRepository;
+
+    static List<TimePointStorageProperties.Storage> storages() {
+        return List.of(TimePointStorageProperties.Storage.values());
+    }
+
+    @BeforeEach
+    void setUp() {
+        experimentRepository.deleteAll();
+        mongoTemplate.remove(new Query(), TimePointBucket.class);
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void findTimePoints_latest(TimePointStorageProperties.Storage storage) {
+        TimePointStore store = store(storage);
+        String id = save(store);
+
+        TimePointPage page = store.findTimePoints(id, null, null, null, 3).orElseThrow();
+
+        assertEquals(List.of("Point 7", "Point 8", "Point 9"), names(page));
+        assertEquals(10, page.next());
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void findTimePoints_afterCursor(TimePointStorageProperties.Storage storage) {
+        TimePointStore store = store(storage);
+        String id = save(store);
+
+        TimePointPage first = store.findTimePoints(id, null, null, 0L, 4).orElseThrow();
+        TimePointPage second = store.findTimePoints(id, null, null, first.next(), 4).orElseThrow();
+        TimePointPage last = store.findTimePoints(id, null, null, 10L, 4).orElseThrow();
+
+        assertEquals(List.of("Point 0", "Point 1", "Point 2", "Point 3"), names(first));
+        assertEquals(List.of("Point 4", "Point 5", "Point 6", "Point 7"), names(second));
+        assertEquals(8, second.next());
+        assertTrue(last.timePoints().isEmpty());
+        assertEquals(10, last.next());
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void findTimePoints_window(TimePointStorageProperties.Storage storage) {
+        TimePointStore store = store(storage);
+        String id = save(store);
+        Instant from = Instant.ofEpochMilli(START + 2000);
+        Instant to = Instant.ofEpochMilli(START + 6000);
+
+        TimePointPage latest = store.findTimePoints(id, from, to, null, 2).orElseThrow();
+        TimePointPage afterCursor = store.findTimePoints(id, from, to, 1L, 2).orElseThrow();
+
+        assertEquals(List.of("Point 4", "Point 5"), names(latest));
+        assertEquals(4, latest.next());
+        assertEquals(List.of("Point 3", "Point 4"), names(afterCursor));
+        assertEquals(3, afterCursor.next());
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void findTimePoints_cursorAcrossRefilledBucket(TimePointStorageProperties.Storage storage) {
+        TimePointStore store = store(storage);
+        // Buckets of three: 0-1 in the first, which is left partial when 2-3 do not fit and open the second
+        String id = store.save(new Experiment(null, "Experiment", null, Instant.ofEpochMilli(START), null,
+                points(0, 2), null)).getId();
+        store.append(id, points(2, 2));
+        TimePointPage first = store.findTimePoints(id, null, null, 0L, 3).orElseThrow();
+
+        // Refills the partial second bucket, then opens a third one
+        store.append(id, points(4, 1));
+        store.append(id, points(5, 2));
+        TimePointPage second = store.findTimePoints(id, null, null, first.next(), 3).orElseThrow();
+        TimePointPage latest = store.findTimePoints(id, null, null, null, 4).orElseThrow();
+
+        assertEquals(List.of("Point 0", "Point 1", "Point 2"), names(first));
+        assertEquals(List.of("Point 3", "Point 4", "Point 5"), names(second));
+        assertEquals(6, second.next());
+        assertEquals(List.of("Point 3", "Point 4", "Point 5", "Point 6"), names(latest));
+        assertEquals(7, latest.next());
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void aggregateTimePoints_countsPerInterval(TimePointStorageProperties.Storage storage) {
+        TimePointStore store = store(storage);
+        String id = save(store);
+        Instant start = Instant.ofEpochMilli(START);
+
+        List<TimePointInterval> intervals = store.aggregateTimePoints(id, start.plusSeconds(1), start.plusSeconds(10),
+                Duration.ofSeconds(4), false);
+
+        assertEquals(new TimePointRange(10, start, start.plusSeconds(9)), store.findTimePointRange(id, null, null));
+        assertEquals(List.of(4L, 4L, 1L), intervals.stream().map(TimePointInterval::count).toList());
+        assertEquals(start.plusSeconds(5), intervals.get(1).start());
+        assertEquals(start.plusSeconds(5), intervals.get(1).first());
+        assertEquals(start.plusSeconds(8), intervals.get(1).last());
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void streamTimePoints_window(TimePointStorageProperties.Storage storage) {
+        TimePointStore store = store(storage);
+        String id = save(store);
+
+        List<String> names;
+        try (Stream<ExperimentItem> timePoints = store.streamTimePoints(id, Instant.ofEpochMilli(START + 2000),
+                Instant.ofEpochMilli(START + 8000))) {
+            names = timePoints.map(ExperimentItem::getName).toList();
+        }
+
+        assertEquals(List.of("Point 2", "Point 3", "Point 4", "Point 5", "Point 6", "Point 7"), names);
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void append_unevenSizesKeepInsertionOrder(TimePointStorageProperties.Storage storage) {
+        TimePointStore store = store(storage);
+        // With buckets of three: a partial first bucket, a partial second one, then a point that fits both
+        String id = store.save(new Experiment(null, "Experiment", null, Instant.ofEpochMilli(START), null,
+                points(0, 2), null)).getId();
+        store.append(id, points(2, 2));
+        store.append(id, points(4, 1));
+
+        Experiment experiment = experimentRepository.findById(id).map(store::withTimePoints).orElseThrow();
+
+        assertEquals(List.of("Point 0", "Point 1", "Point 2", "Point 3", "Point 4"),
+                experiment.getTimePoints().stream().map(ExperimentItem::getName).toList());
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void save_replacesAppendedHistory(TimePointStorageProperties.Storage storage) {
+        TimePointStore store = store(storage);
+        String id = save(store);
+        store.append(id, points(10, 2));
+
+        Experiment experiment = experimentRepository.findById(id).orElseThrow();
+        experiment.setTimePoints(points(20, 4));
+        store.save(experiment);
+
+        assertEquals(List.of("Point 20", "Point 21", "Point 22", "Point 23"),
+                names(store.findTimePoints(id, null, null, 0L, 10).orElseThrow()));
+        assertEquals(4, store.findTimePointRange(id, null, null).count());
+    }
+
+    @Test
+    void append_racingSaveLandsInNewHistory() {
+        BucketedTimePointStore store = (BucketedTimePointStore) store(TimePointStorageProperties.Storage.BUCKETED);
+        String id = save(store);
+        String replaced = experimentRepository.findById(id).orElseThrow().getBucketGeneration();
+
+        // The append read the generation, then a save replaced the history before the append was done
+        Experiment experiment = experimentRepository.findById(id).orElseThrow();
+        experiment.setTimePoints(points(20, 2));
+        store.save(experiment);
+        long version = experimentRepository.findById(id).orElseThrow().getVersion();
+
+        assertNull(store.append(id, replaced, points(30, 1)));
+        assertEquals(0, mongoTemplate.count(Query.query(where("generation").is(replaced)), TimePointBucket.class));
+        assertEquals(version, experimentRepository.findById(id).orElseThrow().getVersion());
+
+        // Appending again lands in the new history
+        assertEquals(version + 1, store.append(id, points(30, 1)).orElseThrow().getVersion());
+        assertEquals(List.of("Point 20", "Point 21", "Point 30"),
+                names(store.findTimePoints(id, null, null, 0L, 10).orElseThrow()));
+    }
+
+    @Test
+    void append_movesEmbeddedHistoryIntoBuckets() {
+        // Written before the switch to bucketed storage
+        String id = save(store(TimePointStorageProperties.Storage.EMBEDDED));
+        TimePointStore store = store(TimePointStorageProperties.Storage.BUCKETED);
+
+        assertEquals(List.of("Point 8", "Point 9"), names(store.findTimePoints(id, null, null, null, 2).orElseThrow()));
+        assertEquals(10, store.findTimePointRange(id, null, null).count());
+
+        store.append(id, points(10, 1));
+
+        Experiment experiment = experimentRepository.findById(id).orElseThrow();
+        assertTrue(experiment.getBucketGeneration() != null);
+        assertNull(experiment.getTimePoints());
+        assertEquals(11, store.findTimePointRange(id, null, null).count());
+        assertEquals(List.of("Point 9", "Point 10"), names(store.findTimePoints(id, null, null, null, 2).orElseThrow()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("storages")
+    void findTimePoints_notFound(TimePointStorageProperties.Storage storage) {
+        assertEquals(Optional.empty(), store(storage).findTimePoints("missing", null, null, null, 3));
+    }
+
+    private TimePointStore store(TimePointStorageProperties.Storage storage) {
+        return switch (storage) {
+            case EMBEDDED -> new EmbeddedTimePointStore(experimentRepository);
+            case BUCKETED -> new BucketedTimePointStore(experimentRepository, mongoTemplate,
+                    new TimePointStorageProperties(storage, 3));
+        };
+    }
+
+    private static String save(TimePointStore store) {
+        return store.save(new Experiment(null, "Experiment", null, Instant.ofEpochMilli(START), null, points(0, 10),
+                null)).getId();
+    }
+
+    /**
+     * Time points one second apart, named and dated by their index from {@code from}.
+     */
+    private static List<ExperimentItem> points(int from, int count) {
+        List<ExperimentItem> timePoints = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            timePoints.add(new ExperimentItem("Point " + i, null, Instant.ofEpochMilli(START + i * 1000L)));
+        }
+        return timePoints;
+    }
+
+    private static List<String> names(TimePointPage page) {
+        return page.timePoints().stream().map(ExperimentItem::getName).toList();
+    }
+}
@@ -0,0 +1,111 @@
+package org.niitp.experimentservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.niitp.experimentservice.config.BulkProperties;
+import org.niitp.experimentservice.config.ImportProperties;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ImportResult;
+import org.niitp.experimentservice.repository.TimePointStore;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ExperimentImporterTests {
+
+    private TimePointStore timePointStore;
+    private ExperimentImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        timePointStore = mock(TimePointStore.class);
+        importer = new ExperimentImporter(timePointStore, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ExperimentMetrics(new SimpleMeterRegistry()), new BulkProperties(2), new ImportProperties(2, 2, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.destroy();
+    }
+
+    @Test
+    void importExperiments_writesValidLinesInBatches() throws Exception {
+        Map<String, Boolean> written = new ConcurrentHashMap<>();
+        when(timePointStore.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Experiment> batch = invocation.getArgument(0);
+            batch.forEach(experiment -> written.put(experiment.getName(), true));
+            return Map.of();
+        });
+
+        ImportResult result = importer.importExperiments(lines("""
+                {"name": "Experiment 1"}
+                {"name": "Experiment 2"}
+
+                {"name": "Experiment 3"}
+                {"name": "Experiment 4"}
+                {"name": "Experiment 5"}
+                """));
+
+        assertEquals(5, result.lines());
+        assertEquals(5, result.inserted());
+        assertEquals(0, result.rejected());
+        assertEquals(5, written.size());
+        verify(timePointStore, times(3)).insertAll(anyList());
+    }
+
+    @Test
+    void importExperiments_reportsRejectedLines() throws Exception {
+        when(timePointStore.insertAll(anyList())).thenReturn(Map.of(1, "E11000 duplicate key error"));
+
+        ImportResult result = importer.importExperiments(lines("""
+                {"name": "Experiment 1"}
+                {"name": ""}
+                {"name": "Experiment 3", "date_time_start": "not a date"}
+                {"name": "Experiment 4"
+                {"id": "1", "name": "Experiment 5"}
+                {"id": "1", "name": "Experiment 6"}
+                """));
+
+        assertEquals(6, result.lines());
+        assertEquals(2, result.inserted());
+        assertEquals(4, result.rejected());
+        // Only the first two rejections are kept
+        assertEquals(List.of(2L, 3L), result.rejections().stream().map(ImportResult.Rejection::line).toList());
+        assertTrue(result.rejections().get(0).error().contains("name"));
+    }
+
+    @Test
+    void importExperiments_rejectsBatchThatFailsToBeWritten() throws Exception {
+        when(timePointStore.insertAll(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("Timed out"))
+                .thenReturn(Map.of());
+
+        ImportResult result = importer.importExperiments(lines("""
+                {"name": "Experiment 1"}
+                {"name": "Experiment 2"}
+                {"name": "Experiment 3"}
+                """));
+
+        assertEquals(1, result.inserted());
+        assertEquals(List.of(new ImportResult.Rejection(1, "Timed out"), new ImportResult.Rejection(2, "Timed out")),
+                result.rejections());
+    }
+
+    private static ByteArrayInputStream lines(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
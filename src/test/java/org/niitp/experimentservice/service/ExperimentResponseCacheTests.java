@@ -0,0 +1,83 @@
+package org.niitp.experimentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.niitp.experimentservice.config.ResponseCacheProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExperimentResponseCacheTests {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExperimentResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ExperimentResponseCache(new ResponseCacheProperties(DataSize.ofKilobytes(1),
+                Duration.ofMillis(200)), meterRegistry);
+    }
+
+    @Test
+    void get_serializesOnlyOnMiss() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("1", id -> json(loads.incrementAndGet()));
+        ExperimentJson json = cache.get("1", id -> json(loads.incrementAndGet())).orElseThrow();
+
+        assertEquals(1, loads.get());
+        assertArrayEquals(new byte[]{1}, json.json());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void get_doesNotCacheMissingExperiments() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertTrue(cache.get("1", id -> {
+            loads.incrementAndGet();
+            return null;
+        }).isEmpty());
+        cache.get("1", id -> json(loads.incrementAndGet()));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        cache.get("1", id -> json(1));
+        cache.invalidate("1");
+
+        assertTrue(cache.getIfPresent("1").isEmpty());
+
+        assertArrayEquals(new byte[]{2}, cache.get("1", id -> json(2)).orElseThrow().json());
+    }
+
+    @Test
+    void getIfPresent_returnsCachedVersion() {
+        assertTrue(cache.getIfPresent("1").isEmpty());
+
+        cache.get("1", id -> new ExperimentJson(3L, new byte[]{1}));
+
+        assertEquals(3L, cache.getIfPresent("1").orElseThrow().version());
+    }
+
+    @Test
+    void getIfPresent_expiresAfterTtl() throws InterruptedException {
+        cache.get("1", id -> json(1));
+
+        Thread.sleep(300);
+
+        assertTrue(cache.getIfPresent("1").isEmpty());
+    }
+
+    private static ExperimentJson json(int content) {
+        return new ExperimentJson(1L, new byte[]{(byte) content});
+    }
+}
@@ -0,0 +1,251 @@
+package org.niitp.experimentservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.niitp.experimentservice.config.BulkProperties;
+import org.niitp.experimentservice.model.BulkItemResult;
+import org.niitp.experimentservice.model.BulkResult;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.model.TimePointExportFormat;
+import org.niitp.experimentservice.model.TimePointRange;
+import org.niitp.experimentservice.repository.ExperimentRepository;
+import org.niitp.experimentservice.repository.TimePointStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ExperimentServiceTests {
+
+    private ExperimentRepository experimentRepository;
+    private TimePointStore timePointStore;
+    private SimpleMeterRegistry meterRegistry;
+    private ExperimentService experimentService;
+
+    @BeforeEach
+    void setUp() {
+        experimentRepository = mock(ExperimentRepository.class);
+        timePointStore = mock(TimePointStore.class);
+        meterRegistry = new SimpleMeterRegistry();
+        experimentService = new ExperimentService(
+                experimentRepository,
+                timePointStore,
+                new ObjectMapper(),
+                mock(ExperimentResponseCache.class),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new BulkProperties(2),
+                new ExperimentMetrics(meterRegistry),
+                Optional.empty()
+        );
+    }
+
+    @Test
+    void addExperiments_reportsEachItemOfNdjson() throws Exception {
+        when(timePointStore.insertAll(anyList())).thenReturn(Map.of());
+
+        BulkResult result = experimentService.addExperiments(stream("""
+                {"name": "Experiment 1"}
+                {"name": ""}
+                {"name": "Experiment 3", "date_time_start": "not a date"}
+                {"name": "Experiment 4"}
+                {"name": "Experiment 5"}
+                """));
+
+        assertEquals(3, result.inserted());
+        assertEquals(2, result.rejected());
+        assertEquals(List.of(0, 1, 2, 3, 4), result.items().stream().map(BulkItemResult::index).toList());
+        assertNotNull(result.items().get(0).id());
+        assertTrue(result.items().get(1).error().contains("name"));
+        assertNotNull(result.items().get(2).error());
+        // Valid experiments are written in chunks of two
+        verify(timePointStore, times(2)).insertAll(anyList());
+        assertEquals(3, meterRegistry.get("experiment.time.points").tag("operation", "insert").summary().count());
+    }
+
+    @Test
+    void addExperiments_acceptsJsonArrayAndReportsWriteErrors() throws Exception {
+        when(timePointStore.insertAll(anyList())).thenReturn(Map.of(1, "E11000 duplicate key error"));
+
+        BulkResult result = experimentService.addExperiments(stream("""
+                [{"id": "1", "name": "Experiment 1"}, {"id": "1", "name": "Experiment 1 again"}]
+                """));
+
+        assertEquals(1, result.inserted());
+        assertEquals(1, result.rejected());
+        assertEquals("1", result.items().get(0).id());
+        assertEquals("E11000 duplicate key error", result.items().get(1).error());
+    }
+
+    @Test
+    void addExperiments_stopsAtMalformedJson() throws Exception {
+        when(timePointStore.insertAll(anyList())).thenReturn(Map.of());
+
+        BulkResult result = experimentService.addExperiments(stream("""
+                {"name": "Experiment 1"}
+                {"name": "Experiment 2",}
+                {"name": "Experiment 3"}
+                """));
+
+        assertEquals(1, result.inserted());
+        assertEquals(1, result.rejected());
+        assertEquals(List.of(0, 1), result.items().stream().map(BulkItemResult::index).toList());
+        assertNotNull(result.items().get(0).id());
+        assertTrue(result.items().get(1).error().startsWith("Malformed JSON"));
+        verify(timePointStore, times(1)).insertAll(anyList());
+    }
+
+    @Test
+    void patchExperiment_setsAndRemovesOnlyPatchedFields() throws Exception {
+        when(experimentRepository.patch(eq("1"), anyMap(), eq(3L))).thenReturn(Optional.of(new Experiment()));
+
+        experimentService.patchExperiment("1", patch("""
+                {"name": "Experiment 1", "date_time_start": "2024-11-28T10:00:00.000+03:00", "date_time_finish": null}
+                """), 3L);
+
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("name", "Experiment 1");
+        changes.put("date_time_start", Instant.ofEpochMilli(1_732_777_200_000L));
+        changes.put("dateTimeFinish", null);
+        verify(experimentRepository).patch("1", changes, 3L);
+    }
+
+    @Test
+    void patchExperiment_rejectsInvalidValues() throws Exception {
+        ObjectNode patch = patch("""
+                {"name": null, "description": "Description"}
+                """);
+
+        ConstraintViolationException e = assertThrows(ConstraintViolationException.class,
+                () -> experimentService.patchExperiment("1", patch, null));
+
+        assertEquals("name", e.getConstraintViolations().iterator().next().getPropertyPath().toString());
+        verify(experimentRepository, never()).patch(any(), anyMap(), any());
+    }
+
+    @Test
+    void patchExperiment_rejectsTimePoints() throws Exception {
+        ObjectNode patch = patch("""
+                {"time_points": []}
+                """);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> experimentService.patchExperiment("1", patch, null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        verify(experimentRepository, never()).patch(any(), anyMap(), any());
+    }
+
+    @Test
+    void addTimePoints_recordsAppendSize() {
+        List<ExperimentItem> timePoints = List.of(
+                new ExperimentItem("Point 1", null, Instant.now()),
+                new ExperimentItem("Point 2", null, Instant.now()));
+        when(timePointStore.append("1", timePoints)).thenReturn(Optional.of(new Experiment()));
+
+        experimentService.addTimePoints("1", timePoints);
+
+        DistributionSummary appended = meterRegistry.get("experiment.time.points.appended").summary();
+        assertEquals(1, appended.count());
+        assertEquals(2, appended.totalAmount());
+    }
+
+    @Test
+    void aggregateTimePoints_splitsRangeOfTimePoints() {
+        Instant first = Instant.parse("2024-11-28T07:00:00Z");
+        when(experimentRepository.existsById("1")).thenReturn(true);
+        when(timePointStore.findTimePointRange("1", null, null))
+                .thenReturn(new TimePointRange(100, first, first.plusSeconds(99)));
+        when(timePointStore.aggregateTimePoints(eq("1"), any(), any(), any(), eq(false))).thenReturn(List.of());
+
+        experimentService.aggregateTimePoints("1", null, null, null, 10, false);
+
+        // The range includes the last point, so 99.001s are split into intervals of 9.901s
+        verify(timePointStore).aggregateTimePoints("1", first, first.plusMillis(99_001), Duration.ofMillis(9_901), false);
+    }
+
+    @Test
+    void aggregateTimePoints_rejectsTooManyIntervals() {
+        Instant from = Instant.parse("2024-11-28T07:00:00Z");
+        when(experimentRepository.existsById("1")).thenReturn(true);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> experimentService
+                .aggregateTimePoints("1", from, from.plus(Duration.ofDays(1)), Duration.ofSeconds(1), 200, false));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        verify(timePointStore, never()).aggregateTimePoints(any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void aggregateTimePoints_missingExperiment() {
+        assertEquals(Optional.empty(), experimentService.aggregateTimePoints("404", null, null, null, 200, false));
+        verify(timePointStore, never()).findTimePointRange(any(), any(), any());
+    }
+
+    @Test
+    void exportTimePoints_quotesCsvFields() throws Exception {
+        when(timePointStore.streamTimePoints("1", null, null)).thenReturn(Stream.of(
+                new ExperimentItem("Point 1", "Heating, stage \"A\"", Instant.parse("2024-11-28T07:00:00Z")),
+                new ExperimentItem("Point 2", null, Instant.parse("2024-11-28T07:00:01.500Z"))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        experimentService.exportTimePoints("1", null, null, TimePointExportFormat.CSV, out);
+
+        assertEquals("""
+                name,description,date_time\r
+                Point 1,"Heating, stage ""A\"\"",2024-11-28T07:00:00.000Z\r
+                Point 2,,2024-11-28T07:00:01.500Z\r
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportTimePoints_writesNdjsonAndClosesCursor() throws Exception {
+        Stream<ExperimentItem> timePoints = Stream.of(
+                new ExperimentItem("Point 1", null, Instant.parse("2024-11-28T07:00:00Z")),
+                new ExperimentItem("Point 2", null, Instant.parse("2024-11-28T07:00:01Z")));
+        AtomicBoolean closed = new AtomicBoolean();
+        Instant from = Instant.parse("2024-11-28T06:00:00Z");
+        when(timePointStore.streamTimePoints("1", from, null)).thenReturn(timePoints.onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        experimentService.exportTimePoints("1", from, null, TimePointExportFormat.NDJSON, out);
+
+        assertEquals("""
+                {"name":"Point 1","date_time":"2024-11-28T07:00:00.000Z"}
+                {"name":"Point 2","date_time":"2024-11-28T07:00:01.000Z"}
+                """, out.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+    }
+
+    private static ObjectNode patch(String content) throws Exception {
+        return (ObjectNode) new ObjectMapper().readTree(content);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
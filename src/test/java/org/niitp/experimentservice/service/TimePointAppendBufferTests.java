@@ -0,0 +1,192 @@
+package org.niitp.experimentservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.niitp.experimentservice.config.AppendBufferProperties;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.niitp.experimentservice.repository.TimePointStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TimePointAppendBufferTests {
+
+    private TimePointStore timePointStore;
+    private ExperimentResponseCache responseCache;
+    private SimpleMeterRegistry meterRegistry;
+    private TimePointAppendBuffer appendBuffer;
+
+    @BeforeEach
+    void setUp() {
+        timePointStore = mock(TimePointStore.class);
+        responseCache = mock(ExperimentResponseCache.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(timePointStore.append(eq("1"), anyList())).thenAnswer(invocation -> Optional.of(
+                new Experiment("1", "Experiment 1", null, null, null, invocation.getArgument(1), 7L)));
+        when(timePointStore.append(eq("404"), anyList())).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (appendBuffer != null) {
+            appendBuffer.destroy();
+        }
+    }
+
+    @Test
+    void append_coalescesConcurrentAppendsIntoOneWrite() throws Exception {
+        appendBuffer = buffer(AppendBufferProperties.Durability.ACK_AFTER_FLUSH, 3, Duration.ofSeconds(10));
+        ExecutorService devices = Executors.newFixedThreadPool(3);
+        try {
+            List<CompletableFuture<Optional<Experiment>>> appends = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                List<ExperimentItem> timePoints = List.of(point("Point " + i));
+                appends.add(CompletableFuture.supplyAsync(() -> appendBuffer.append("1", timePoints), devices));
+            }
+
+            for (int i = 0; i < 3; i++) {
+                // Every append gets the experiment with only its own points
+                Experiment experiment = appends.get(i).get().orElseThrow();
+                assertEquals(List.of("Point " + i), experiment.getTimePoints().stream().map(ExperimentItem::getName).toList());
+                assertEquals(7L, experiment.getVersion());
+            }
+        } finally {
+            devices.shutdown();
+        }
+        verify(timePointStore, times(1)).append(eq("1"), argThat(points -> points.size() == 3));
+        verify(responseCache, times(1)).invalidate("1");
+        assertEquals(3.0, meterRegistry.get("experiment.append.buffer.flush.points").summary().totalAmount());
+    }
+
+    @Test
+    void append_flushesAfterMaxDelay() {
+        appendBuffer = buffer(AppendBufferProperties.Durability.ACK_AFTER_FLUSH, 100, Duration.ofMillis(20));
+
+        Optional<Experiment> experiment = appendBuffer.append("1", List.of(point("Point 1")));
+
+        assertEquals(1, experiment.orElseThrow().getTimePoints().size());
+        verify(timePointStore, times(1)).append(eq("1"), anyList());
+    }
+
+    @Test
+    void append_missingExperiment() {
+        appendBuffer = buffer(AppendBufferProperties.Durability.ACK_AFTER_FLUSH, 100, Duration.ofMillis(20));
+
+        assertEquals(Optional.empty(), appendBuffer.append("404", List.of(point("Point 1"))));
+    }
+
+    @Test
+    void append_writesLargeAppendsDirectly() {
+        appendBuffer = buffer(AppendBufferProperties.Durability.ACK_ON_BUFFER, 2, Duration.ofSeconds(10));
+
+        Optional<Experiment> experiment = appendBuffer.append("1", List.of(point("Point 1"), point("Point 2")));
+
+        assertEquals("Experiment 1", experiment.orElseThrow().getName());
+        verify(timePointStore, times(1)).append(eq("1"), anyList());
+    }
+
+    @Test
+    void append_writesLargeAppendsAfterBufferedPoints() {
+        appendBuffer = buffer(AppendBufferProperties.Durability.ACK_ON_BUFFER, 2, Duration.ofSeconds(10));
+
+        appendBuffer.append("1", List.of(point("Point 1")));
+        appendBuffer.append("1", List.of(point("Point 2"), point("Point 3")));
+
+        InOrder writes = inOrder(timePointStore);
+        writes.verify(timePointStore).append(eq("1"), argThat(points -> points.size() == 1));
+        writes.verify(timePointStore).append(eq("1"), argThat(points -> points.size() == 2));
+    }
+
+    @Test
+    void append_reportsQueuedWritesOutlastingTheTimeoutAsMaybeApplied() {
+        CountDownLatch stalled = new CountDownLatch(1);
+        when(timePointStore.append(eq("slow"), anyList())).thenAnswer(invocation -> {
+            stalled.await();
+            return Optional.empty();
+        });
+        appendBuffer = buffer(AppendBufferProperties.Durability.ACK_AFTER_FLUSH, 100, Duration.ofMillis(20));
+        try {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> appendBuffer.append("slow", List.of(point("Point 1"))));
+            // The batch is already on its lane, so a retry could write the points twice
+            assertEquals(HttpStatus.GATEWAY_TIMEOUT, e.getStatusCode());
+        } finally {
+            stalled.countDown();
+        }
+    }
+
+    @Test
+    void append_withdrawsBufferedPointsWhenItGivesUp() throws Exception {
+        appendBuffer = buffer(AppendBufferProperties.Durability.ACK_AFTER_FLUSH, 100, Duration.ofSeconds(10));
+        CompletableFuture<Optional<Experiment>> kept = CompletableFuture.supplyAsync(
+                () -> appendBuffer.append("1", List.of(point("Point 1"))));
+        CompletableFuture<ResponseStatusException> abandoned = new CompletableFuture<>();
+        Thread device = new Thread(() -> {
+            try {
+                appendBuffer.append("1", List.of(point("Point 2"), point("Point 3")));
+            } catch (ResponseStatusException e) {
+                abandoned.complete(e);
+            }
+        });
+        device.start();
+        while (device.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(10);
+        }
+
+        device.interrupt();
+
+        // Nothing of the abandoned append is written, so retrying it is safe
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, abandoned.get().getStatusCode());
+        appendBuffer.destroy();
+        appendBuffer = null;
+        assertEquals(List.of("Point 1"), kept.get().orElseThrow().getTimePoints().stream()
+                .map(ExperimentItem::getName).toList());
+        verify(timePointStore, times(1)).append(eq("1"), argThat(points -> points.size() == 1));
+    }
+
+    @Test
+    void append_acknowledgesOnBufferAndDrainsOnShutdown() throws InterruptedException {
+        appendBuffer = buffer(AppendBufferProperties.Durability.ACK_ON_BUFFER, 100, Duration.ofSeconds(10));
+
+        Optional<Experiment> experiment = appendBuffer.append("1", List.of(point("Point 1")));
+        appendBuffer.append("1", List.of(point("Point 2")));
+
+        assertTrue(experiment.isPresent());
+        assertEquals("1", experiment.get().getId());
+        verify(timePointStore, never()).append(any(), anyList());
+
+        appendBuffer.destroy();
+        appendBuffer = null;
+        verify(timePointStore, times(1)).append(eq("1"), argThat(points -> points.size() == 2));
+    }
+
+    private TimePointAppendBuffer buffer(AppendBufferProperties.Durability durability, int maxPoints, Duration maxDelay) {
+        return new TimePointAppendBuffer(timePointStore, responseCache, new AppendBufferProperties(true, durability,
+                maxPoints, maxDelay, 1000, Duration.ofSeconds(1), 4, 2, Duration.ofSeconds(5)), meterRegistry);
+    }
+
+    private static ExperimentItem point(String name) {
+        return new ExperimentItem(name, null, Instant.now());
+    }
+}
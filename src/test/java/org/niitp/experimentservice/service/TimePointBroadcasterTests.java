@@ -0,0 +1,91 @@
+package org.niitp.experimentservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.niitp.experimentservice.model.Experiment;
+import org.niitp.experimentservice.model.ExperimentItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Subscribes over HTTP and checks that time points appended afterwards arrive through the change stream of the
+ * replica set started by Testcontainers.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class TimePointBroadcasterTests {
+
+    @Container
+    private static final MongoDBContainer mongoDBContainer = new MongoDBContainer();
+
+    @DynamicPropertySource
+    static void setMongoDBProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ExperimentService experimentService;
+
+    @Test
+    void subscribe_receivesAppendedTimePoints() throws Exception {
+        String id = experimentService.addExperiment(
+                new Experiment(null, "Live experiment", null, Instant.now(), null, List.of(), null)).getId();
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(
+                        "http://localhost:" + port + "/experiments/" + id + "/time_points/live"))
+                .header("Accept", "text/event-stream")
+                .build();
+        // Returns once the response headers arrive, that is after the subscription is registered
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient()
+                .send(request, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+
+        experimentService.addTimePoints(id, List.of(
+                new ExperimentItem("Point 1", null, Instant.now()),
+                new ExperimentItem("Point 2", null, Instant.now())));
+        experimentService.addTimePoints(id, List.of(new ExperimentItem("Point 3", null, Instant.now())));
+
+        try (Stream<String> lines = response.body()) {
+            Iterator<String> events = lines.iterator();
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                assertEquals("event:time_points", next(events, "event:"));
+                String first = next(events, "data:");
+                assertTrue(first.contains("\"Point 1\"") && first.contains("\"Point 2\""), first);
+                assertEquals("event:time_points", next(events, "event:"));
+                assertTrue(next(events, "data:").contains("\"Point 3\""));
+            });
+        }
+    }
+
+    private static String next(Iterator<String> lines, String prefix) {
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith(prefix)) {
+                return line;
+            }
+        }
+        throw new AssertionError("Stream ended before " + prefix);
+    }
+}